@@ -1,11 +1,11 @@
 package net.frankheijden.serverutils.bukkit;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import net.frankheijden.serverutils.bukkit.entities.BukkitPlugin;
 import net.frankheijden.serverutils.bukkit.managers.BukkitPluginManager;
+import net.frankheijden.serverutils.bukkit.managers.CommandSyncManager;
 import net.frankheijden.serverutils.bukkit.reflection.RCraftServer;
 import net.frankheijden.serverutils.common.ServerUtilsApp;
 import net.frankheijden.serverutils.common.utils.StringUtils;
@@ -47,7 +47,7 @@ public class ServerUtils extends JavaPlugin {
     public void onDisable() {
         super.onDisable();
         restoreBukkitPluginCommand();
-        RCraftServer.syncCommands(Collections.emptySet());
+        CommandSyncManager.syncNow();
         plugin.disable();
     }
 
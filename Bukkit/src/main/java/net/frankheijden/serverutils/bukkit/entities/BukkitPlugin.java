@@ -11,6 +11,7 @@ import net.frankheijden.serverutils.bukkit.commands.BukkitCommandPlugins;
 import net.frankheijden.serverutils.bukkit.commands.BukkitCommandServerUtils;
 import net.frankheijden.serverutils.bukkit.config.BukkitMessageKey;
 import net.frankheijden.serverutils.bukkit.listeners.BukkitPlayerListener;
+import net.frankheijden.serverutils.bukkit.listeners.BukkitPluginListener;
 import net.frankheijden.serverutils.bukkit.managers.BukkitPluginManager;
 import net.frankheijden.serverutils.bukkit.managers.BukkitTaskManager;
 import net.frankheijden.serverutils.common.entities.ServerUtilsPlugin;
@@ -116,6 +117,7 @@ public class BukkitPlugin extends ServerUtilsPlugin<Plugin, BukkitTask, BukkitAu
     @Override
     protected void enablePlugin() {
         Bukkit.getPluginManager().registerEvents(new BukkitPlayerListener(this), plugin);
+        Bukkit.getPluginManager().registerEvents(new BukkitPluginListener(this), plugin);
     }
 
     @Override
@@ -43,6 +43,11 @@ public class BukkitPluginDescription implements ServerUtilsPluginDescription {
         return this.author;
     }
 
+    @Override
+    public String getMain() {
+        return this.descriptionFile.getMain();
+    }
+
     @Override
     public File getFile() {
         return this.file;
@@ -0,0 +1,30 @@
+package net.frankheijden.serverutils.bukkit.listeners;
+
+import net.frankheijden.serverutils.bukkit.entities.BukkitAudience;
+import net.frankheijden.serverutils.bukkit.entities.BukkitPlugin;
+import net.frankheijden.serverutils.bukkit.events.BukkitPluginLoadEvent;
+import net.frankheijden.serverutils.bukkit.events.BukkitPluginUnloadEvent;
+import net.frankheijden.serverutils.common.listeners.PluginListener;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.Plugin;
+
+public class BukkitPluginListener
+        extends PluginListener<BukkitPlugin, Plugin, BukkitAudience>
+        implements Listener {
+
+    public BukkitPluginListener(BukkitPlugin plugin) {
+        super(plugin);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginLoad(BukkitPluginLoadEvent event) {
+        handleLoad(event);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginUnload(BukkitPluginUnloadEvent event) {
+        handleUnload(event);
+    }
+}
@@ -1,10 +1,10 @@
 package net.frankheijden.serverutils.bukkit.managers;
 
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -15,8 +15,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 import java.util.stream.Collectors;
 import net.frankheijden.serverutils.bukkit.entities.BukkitPluginDescription;
 import net.frankheijden.serverutils.bukkit.events.BukkitPluginDisableEvent;
@@ -37,6 +35,7 @@ import net.frankheijden.serverutils.common.entities.results.Result;
 import net.frankheijden.serverutils.common.entities.exceptions.InvalidPluginDescriptionException;
 import net.frankheijden.serverutils.common.events.PluginEvent;
 import net.frankheijden.serverutils.common.managers.AbstractPluginManager;
+import net.frankheijden.serverutils.common.utils.JarUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.PluginCommand;
@@ -52,6 +51,7 @@ import org.yaml.snakeyaml.error.YAMLException;
 
 public class BukkitPluginManager extends AbstractPluginManager<Plugin, BukkitPluginDescription> {
 
+    private static final PluginCommandIndex commandIndex = new PluginCommandIndex();
     private static BukkitPluginManager instance;
 
     public BukkitPluginManager() {
@@ -92,6 +92,13 @@ public class BukkitPluginManager extends AbstractPluginManager<Plugin, BukkitPlu
 
             if (plugin == null) return pluginResults.addResult(pluginId, Result.INVALID_PLUGIN);
 
+            if (getJarCache().contains(description.getFile())) {
+                // The loader derives the data folder from the jar's folder, which is the cache for copied jars. This
+                // can only be corrected after construction, so files the plugin resolved until now point into the
+                // cache (a limitation of shadow copies on Bukkit, see AbstractPluginManager#isShadowCopyEnabled).
+                RJavaPlugin.setDataFolder(plugin, new File(getPluginsFolder(), plugin.getName()));
+            }
+
             if (RSimplePluginManager.MANAGED_BY_PAPER_INSTANCE_MANAGER) {
                 Bukkit.getPluginManager().callEvent(new BukkitPluginLoadEvent(plugin, PluginEvent.Stage.POST));
                 pluginResults.addResult(pluginId, plugin);
@@ -122,11 +129,27 @@ public class BukkitPluginManager extends AbstractPluginManager<Plugin, BukkitPlu
         return pluginResults;
     }
 
+    @Override
+    protected boolean supportsShadowCopy() {
+        // Paper's instance manager already calls onLoad while loading, i.e. before the data folder can be corrected
+        return !RSimplePluginManager.MANAGED_BY_PAPER_INSTANCE_MANAGER;
+    }
+
+    @Override
+    protected void beginBatch() {
+        CommandSyncManager.beginBatch();
+    }
+
+    @Override
+    protected void endBatch() {
+        CommandSyncManager.endBatch();
+    }
+
     @Override
     public PluginResults<Plugin> disableOrderedPlugins(List<Plugin> plugins) {
         PluginResults<Plugin> disableResults = new PluginResults<>();
 
-        Set<String> removedCommands = new HashSet<>();
+        Map<String, Command> removedCommands = new HashMap<>();
         for (Plugin plugin : plugins) {
             String pluginId = getPluginId(plugin);
             if (!isPluginEnabled(pluginId)) return disableResults.addResult(pluginId, Result.ALREADY_DISABLED);
@@ -143,13 +166,13 @@ public class BukkitPluginManager extends AbstractPluginManager<Plugin, BukkitPlu
             }
 
             unregisterCommands(pluginCommands);
-            removedCommands.addAll(pluginCommands.keySet());
+            removedCommands.putAll(pluginCommands);
             Bukkit.getPluginManager().callEvent(new BukkitPluginDisableEvent(plugin, PluginEvent.Stage.POST));
 
             disableResults.addResult(pluginId, plugin);
         }
 
-        RCraftServer.syncCommands(removedCommands);
+        CommandSyncManager.markRemoved(removedCommands);
         return disableResults;
     }
 
@@ -163,6 +186,7 @@ public class BukkitPluginManager extends AbstractPluginManager<Plugin, BukkitPlu
 
             RCraftingManager.removeRecipesFor(plugin);
             unregisterCommands(plugin);
+            commandIndex.handleUnloaded(plugin);
 
             List<Closeable> closeables = new ArrayList<>();
             try {
@@ -202,19 +226,25 @@ public class BukkitPluginManager extends AbstractPluginManager<Plugin, BukkitPlu
     protected PluginResults<Plugin> enableOrderedPlugins(List<Plugin> plugins) {
         PluginResults<Plugin> enableResults = new PluginResults<>();
         PluginManager bukkitPluginManager = Bukkit.getPluginManager();
+        Set<String> addedCommands = new HashSet<>();
         for (Plugin plugin : plugins) {
             String pluginId = getPluginId(plugin);
             bukkitPluginManager.callEvent(new BukkitPluginEnableEvent(plugin, PluginEvent.Stage.PRE));
+            Map<String, Command> knownCommands = getKnownCommands();
+            int knownCommandsSize = knownCommands == null ? -1 : knownCommands.size();
             bukkitPluginManager.enablePlugin(plugin);
+            if (knownCommands != null) commandIndex.handleEnabled(knownCommands, plugin, knownCommandsSize);
 
             if (!bukkitPluginManager.isPluginEnabled(plugin.getName())) {
+                CommandSyncManager.markAdded(addedCommands);
                 return enableResults.addResult(pluginId, Result.ERROR);
             }
+            addedCommands.addAll(getPluginCommands(plugin).keySet());
             bukkitPluginManager.callEvent(new BukkitPluginEnableEvent(plugin, PluginEvent.Stage.POST));
             enableResults.addResult(pluginId, plugin);
         }
 
-        RCraftServer.syncCommands(Collections.emptySet());
+        CommandSyncManager.markAdded(addedCommands);
         return enableResults;
     }
 
@@ -245,15 +275,10 @@ public class BukkitPluginManager extends AbstractPluginManager<Plugin, BukkitPlu
         Map<String, Command> knownCommands = getKnownCommands();
         if (knownCommands == null) return commands;
 
-        for (Map.Entry<String, Command> entry : knownCommands.entrySet()) {
-            Command c = entry.getValue();
-            if (c instanceof PluginIdentifiableCommand) {
-                @SuppressWarnings("unchecked")
-                C pc = (C) c;
-                if (pc.getPlugin().getName().equals(plugin.getName())) {
-                    commands.put(entry.getKey(), pc);
-                }
-            }
+        for (Map.Entry<String, Command> entry : commandIndex.getCommands(knownCommands, plugin).entrySet()) {
+            @SuppressWarnings("unchecked")
+            C pc = (C) entry.getValue();
+            commands.put(entry.getKey(), pc);
         }
 
         return commands;
@@ -280,7 +305,7 @@ public class BukkitPluginManager extends AbstractPluginManager<Plugin, BukkitPlu
 
         Map<String, Command> knownCommands = getKnownCommands();
         if (knownCommands == null) return;
-        knownCommands.values().removeIf(c -> c.equals(commands.get(c.getName().toLowerCase())));
+        commandIndex.removeCommands(knownCommands, commands);
     }
 
     /**
@@ -314,7 +339,7 @@ public class BukkitPluginManager extends AbstractPluginManager<Plugin, BukkitPlu
         });
 
         RCommandDispatcher.removeCommands(commands);
-        RCraftServer.updateCommands();
+        CommandSyncManager.markPlayersDirty(pluginCommands);
     }
 
     /**
@@ -350,7 +375,7 @@ public class BukkitPluginManager extends AbstractPluginManager<Plugin, BukkitPlu
         knownCommands.values().removeAll(commands);
 
         RCommandDispatcher.removeCommands(commands.stream().map(Command::getName).collect(Collectors.toList()));
-        RCraftServer.updateCommands();
+        CommandSyncManager.markPlayersDirty(commands);
     }
 
     /**
@@ -412,41 +437,17 @@ public class BukkitPluginManager extends AbstractPluginManager<Plugin, BukkitPlu
         return plugin.getName();
     }
 
-    // Copied from JavaPluginLoader#getPluginDescription
+    // Based on JavaPluginLoader#getPluginDescription, without constructing a JarFile
     private PluginDescriptionFile loadDescriptionFromJar(File file) throws InvalidDescriptionException {
-        JarFile jar = null;
-        InputStream stream = null;
-
         try {
-            jar = new JarFile(file);
-            JarEntry entry = jar.getJarEntry("plugin.yml");
-
-            if (entry == null) {
-                entry = jar.getJarEntry("paper-plugin.yml");
-            }
-
-            if (entry == null) {
+            Optional<byte[]> bytes = JarUtils.readEntry(file, "plugin.yml", "paper-plugin.yml");
+            if (!bytes.isPresent()) {
                 throw new InvalidDescriptionException(new FileNotFoundException("Jar does not contain plugin.yml"));
             }
 
-            stream = jar.getInputStream(entry);
-
-            return new PluginDescriptionFile(stream);
+            return new PluginDescriptionFile(new ByteArrayInputStream(bytes.get()));
         } catch (IOException | YAMLException ex) {
             throw new InvalidDescriptionException(ex);
-        } finally {
-            if (jar != null) {
-                try {
-                    jar.close();
-                } catch (IOException ignored) {
-                }
-            }
-            if (stream != null) {
-                try {
-                    stream.close();
-                } catch (IOException ignored) {
-                }
-            }
         }
     }
 }
@@ -0,0 +1,149 @@
+package net.frankheijden.serverutils.bukkit.managers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import net.frankheijden.serverutils.bukkit.reflection.RCraftServer;
+import net.frankheijden.serverutils.common.ServerUtilsApp;
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.entity.Player;
+
+/**
+ * Tracks whether the brigadier command tree went out of sync with the command map, and coalesces all changes into
+ * a single sync and player update. Only the nodes of the changed commands are synced if possible, falling back
+ * to rebuilding the whole tree otherwise. Changes are flushed after the outermost batch ended, or in the next tick
+ * when they were made outside a batch. Must only be used from the main thread.
+ */
+public class CommandSyncManager {
+
+    private static final Set<String> removedCommands = new HashSet<>();
+    private static final Set<String> addedCommands = new HashSet<>();
+    private static final Set<UUID> affectedPlayers = new HashSet<>();
+    private static boolean syncPending = false;
+    private static boolean fullSyncPending = false;
+    private static boolean flushScheduled = false;
+    private static int batchDepth = 0;
+
+    private CommandSyncManager() {}
+
+    /**
+     * Marks the given commands as removed from the command map.
+     * @param commands The removed commands, keyed by their label.
+     */
+    public static void markRemoved(Map<String, ? extends Command> commands) {
+        removedCommands.addAll(commands.keySet());
+        addedCommands.removeAll(commands.keySet());
+        markAffectedPlayers(commands.values());
+        syncPending = true;
+        scheduleFlush();
+    }
+
+    /**
+     * Marks the given commands as added to the command map.
+     */
+    public static void markAdded(Collection<String> commands) {
+        addedCommands.addAll(commands);
+        removedCommands.removeAll(commands);
+        syncPending = true;
+        scheduleFlush();
+    }
+
+    /**
+     * Marks that the given commands were removed from the command tree directly, such that only the online players
+     * who could see them need to be updated.
+     */
+    public static void markPlayersDirty(Collection<? extends Command> commands) {
+        markAffectedPlayers(commands);
+        scheduleFlush();
+    }
+
+    /**
+     * Starts a batch, during which no changes are flushed.
+     */
+    public static void beginBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * Ends a batch, flushing all changes if it was the outermost batch.
+     */
+    public static void endBatch() {
+        if (batchDepth == 0) return;
+        if (--batchDepth == 0) flush();
+    }
+
+    private static void scheduleFlush() {
+        if (batchDepth > 0 || flushScheduled) return;
+        flushScheduled = true;
+        ServerUtilsApp.getPlugin().getTaskManager().runTask(() -> {
+            flushScheduled = false;
+            if (batchDepth == 0) flush();
+        });
+    }
+
+    /**
+     * Syncs the command tree immediately, including any pending changes.
+     */
+    public static void syncNow() {
+        fullSyncPending = true;
+        flush();
+    }
+
+    /**
+     * Performs the pending sync and player update, if any.
+     */
+    public static void flush() {
+        Set<String> removed = new HashSet<>(removedCommands);
+        Set<String> added = new HashSet<>(addedCommands);
+        if (fullSyncPending || (syncPending && !RCraftServer.trySyncCommandsIncrementally(removed, added))) {
+            RCraftServer.syncCommands(removed, added);
+        } else {
+            List<Command> commands = new ArrayList<>(added.size());
+            for (String label : added) {
+                Command command = BukkitPluginManager.getCommand(label);
+                if (command != null) commands.add(command);
+            }
+            markAffectedPlayers(commands);
+            CommandUpdateScheduler.schedule(affectedPlayers);
+        }
+
+        removedCommands.clear();
+        addedCommands.clear();
+        affectedPlayers.clear();
+        syncPending = false;
+        fullSyncPending = false;
+    }
+
+    /**
+     * Marks the online players who are able to see any of the given commands, as only their view of the command
+     * tree changes.
+     */
+    private static void markAffectedPlayers(Collection<? extends Command> commands) {
+        if (commands.isEmpty()) return;
+
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (affectedPlayers.contains(player.getUniqueId())) continue;
+
+            for (Command command : commands) {
+                if (isVisible(command, player)) {
+                    affectedPlayers.add(player.getUniqueId());
+                    break;
+                }
+            }
+        }
+    }
+
+    private static boolean isVisible(Command command, Player player) {
+        try {
+            return command.testPermissionSilent(player);
+        } catch (RuntimeException | LinkageError ex) {
+            // The command's plugin may be unloaded already, so assume the worst
+            return true;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package net.frankheijden.serverutils.bukkit.managers;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import net.frankheijden.serverutils.bukkit.reflection.RCraftServer;
+import net.frankheijden.serverutils.common.ServerUtilsApp;
+import net.frankheijden.serverutils.common.entities.ServerUtilsPlugin;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+/**
+ * Resends the command tree to players, spread over ticks in batches of a configurable amount of players, such that
+ * the packets don't all have to be serialized and sent within the same tick. Must only be used from the main thread.
+ */
+public class CommandUpdateScheduler {
+
+    private static final Set<UUID> pendingPlayers = new LinkedHashSet<>();
+    private static boolean running = false;
+    private static long startNanos;
+    private static int ticks;
+    private static int updatedPlayers;
+
+    private CommandUpdateScheduler() {}
+
+    /**
+     * Schedules a command update for the given players.
+     * Players which are still pending from a previous update are only updated once.
+     */
+    public static void schedule(Collection<UUID> players) {
+        if (players.isEmpty()) return;
+        pendingPlayers.addAll(players);
+        if (running) return;
+
+        running = true;
+        startNanos = System.nanoTime();
+        ticks = 0;
+        updatedPlayers = 0;
+        ServerUtilsApp.getPlugin().getTaskManager().runTask(CommandUpdateScheduler::updateBatch);
+    }
+
+    private static void updateBatch() {
+        ServerUtilsPlugin<?, ?, ?, ?, ?> plugin = ServerUtilsApp.getPlugin();
+        int playersPerTick = plugin.getConfigResource().getConfig().getInt("command-updates.players-per-tick");
+        ticks++;
+
+        Iterator<UUID> it = pendingPlayers.iterator();
+        for (int i = 0; it.hasNext() && (playersPerTick <= 0 || i < playersPerTick); i++) {
+            Player player = Bukkit.getPlayer(it.next());
+            it.remove();
+            if (player == null) continue;
+
+            RCraftServer.updateCommands(player);
+            updatedPlayers++;
+        }
+
+        if (!pendingPlayers.isEmpty()) {
+            plugin.getTaskManager().runTaskLater(CommandUpdateScheduler::updateBatch, 1);
+            return;
+        }
+
+        running = false;
+        plugin.getLogger().info(String.format(
+                "Sent updated commands to %d player(s) in %dms over %d tick(s)",
+                updatedPlayers,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                ticks
+        ));
+    }
+}
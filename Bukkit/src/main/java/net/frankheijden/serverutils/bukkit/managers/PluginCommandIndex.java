@@ -0,0 +1,157 @@
+package net.frankheijden.serverutils.bukkit.managers;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.bukkit.command.Command;
+import org.bukkit.command.PluginIdentifiableCommand;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * An index of the command labels owned by each plugin, such that looking up or removing the commands of a plugin
+ * doesn't need to resolve the owner of every known command.
+ * The index is kept current for commands ServerUtils registers and removes itself. Whenever the amount of known
+ * commands changed otherwise (e.g. a plugin registering commands at runtime), it is rebuilt on the next lookup.
+ * A label which was replaced at runtime is detected when its indexed owner is looked up, by comparing the identity
+ * of its command, and labels which a plugin takes over from another plugin are detected when it's enabled.
+ */
+public class PluginCommandIndex {
+
+    private final Map<String, Set<String>> labels = new HashMap<>();
+    private final Map<String, Command> commandsByLabel = new HashMap<>();
+    private Map<String, Command> indexedCommands = null;
+
+    /**
+     * Retrieves the commands of the given plugin, keyed by their label.
+     */
+    public synchronized Map<String, Command> getCommands(Map<String, Command> knownCommands, Plugin plugin) {
+        if (!isUpToDate(knownCommands)) rebuild(knownCommands);
+
+        Map<String, Command> commands = new HashMap<>();
+        Set<String> pluginLabels = labels.get(plugin.getName());
+        if (pluginLabels == null) return commands;
+
+        Iterator<String> it = pluginLabels.iterator();
+        while (it.hasNext()) {
+            String label = it.next();
+            Command command = knownCommands.get(label);
+            if (command != commandsByLabel.get(label)) {
+                // The label was replaced by other means than ServerUtils, so index it under its current owner
+                if (command == null) {
+                    commandsByLabel.remove(label);
+                    indexedCommands = null;
+                } else {
+                    commandsByLabel.put(label, command);
+                }
+
+                String owner = getOwner(command);
+                if (!plugin.getName().equals(owner)) {
+                    it.remove();
+                    if (owner != null) labels.computeIfAbsent(owner, k -> new HashSet<>()).add(label);
+                    continue;
+                }
+            }
+            commands.put(label, command);
+        }
+        return commands;
+    }
+
+    /**
+     * Removes the given commands from the known commands, if their labels still map to them.
+     */
+    public synchronized void removeCommands(
+            Map<String, Command> knownCommands,
+            Map<String, ? extends Command> commands
+    ) {
+        if (!isUpToDate(knownCommands)) rebuild(knownCommands);
+
+        for (Map.Entry<String, ? extends Command> entry : commands.entrySet()) {
+            if (!knownCommands.remove(entry.getKey(), entry.getValue())) continue;
+            commandsByLabel.remove(entry.getKey());
+
+            Set<String> ownerLabels = labels.get(getOwner(entry.getValue()));
+            if (ownerLabels != null) ownerLabels.remove(entry.getKey());
+        }
+    }
+
+    /**
+     * Indexes the commands which the given plugin declared in its description, after it has been enabled.
+     * Labels the plugin took over from other plugins are moved to the plugin. If the plugin registered any other
+     * commands, the index is rebuilt on the next lookup instead.
+     * @param sizeBefore The amount of known commands before the plugin was enabled.
+     */
+    public synchronized void handleEnabled(Map<String, Command> knownCommands, Plugin plugin, int sizeBefore) {
+        if (indexedCommands != knownCommands || commandsByLabel.size() != sizeBefore) return;
+
+        String prefix = plugin.getName().toLowerCase(Locale.ENGLISH).trim();
+        Set<String> pluginLabels = new HashSet<>();
+        for (String name : plugin.getDescription().getCommands().keySet()) {
+            String commandName = name.toLowerCase(Locale.ENGLISH).trim();
+            Command command = knownCommands.get(prefix + ':' + commandName);
+            if (command == null || !plugin.getName().equals(getOwner(command))) continue;
+
+            addIfOwned(knownCommands, pluginLabels, commandName, command);
+            addIfOwned(knownCommands, pluginLabels, prefix + ':' + commandName, command);
+            for (String alias : command.getAliases()) {
+                String aliasName = alias.toLowerCase(Locale.ENGLISH).trim();
+                addIfOwned(knownCommands, pluginLabels, aliasName, command);
+                addIfOwned(knownCommands, pluginLabels, prefix + ':' + aliasName, command);
+            }
+        }
+
+        int addedLabels = 0;
+        for (String label : pluginLabels) {
+            Command previous = commandsByLabel.put(label, knownCommands.get(label));
+            if (previous == null) {
+                addedLabels++;
+                continue;
+            }
+
+            Set<String> previousLabels = labels.get(getOwner(previous));
+            if (previousLabels != null) previousLabels.remove(label);
+        }
+        labels.computeIfAbsent(plugin.getName(), k -> new HashSet<>()).addAll(pluginLabels);
+
+        if (sizeBefore + addedLabels != knownCommands.size()) {
+            indexedCommands = null;
+        }
+    }
+
+    /**
+     * Drops the given plugin from the index, after it has been unloaded.
+     */
+    public synchronized void handleUnloaded(Plugin plugin) {
+        labels.remove(plugin.getName());
+    }
+
+    private boolean isUpToDate(Map<String, Command> knownCommands) {
+        return indexedCommands == knownCommands && commandsByLabel.size() == knownCommands.size();
+    }
+
+    private void rebuild(Map<String, Command> knownCommands) {
+        labels.clear();
+        commandsByLabel.clear();
+        for (Map.Entry<String, Command> entry : knownCommands.entrySet()) {
+            commandsByLabel.put(entry.getKey(), entry.getValue());
+
+            String owner = getOwner(entry.getValue());
+            if (owner != null) {
+                labels.computeIfAbsent(owner, k -> new HashSet<>()).add(entry.getKey());
+            }
+        }
+
+        indexedCommands = knownCommands;
+    }
+
+    private static void addIfOwned(Map<String, Command> knownCommands, Set<String> labels, String label, Command c) {
+        if (knownCommands.get(label) == c) labels.add(label);
+    }
+
+    private static String getOwner(Command command) {
+        if (!(command instanceof PluginIdentifiableCommand)) return null;
+        return ((PluginIdentifiableCommand) command).getPlugin().getName();
+    }
+}
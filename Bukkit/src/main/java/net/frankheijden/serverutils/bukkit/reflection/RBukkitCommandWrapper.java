@@ -0,0 +1,73 @@
+package net.frankheijden.serverutils.bukkit.reflection;
+
+import com.mojang.brigadier.CommandDispatcher;
+import dev.frankheijden.minecraftreflection.MinecraftReflectionVersion;
+import dev.frankheijden.minecraftreflection.exceptions.MinecraftReflectionException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+
+public class RBukkitCommandWrapper {
+
+    private static final Constructor<?> constructor;
+    private static final Method registerMethod;
+
+    static {
+        Constructor<?> wrapperConstructor = null;
+        Method wrapperRegisterMethod = null;
+
+        if (MinecraftReflectionVersion.MINOR >= 13) {
+            String className = Bukkit.getServer().getClass().getPackage().getName() + ".command.BukkitCommandWrapper";
+            try {
+                Class<?> clazz = Class.forName(className);
+                for (Constructor<?> c : clazz.getConstructors()) {
+                    Class<?>[] parameterTypes = c.getParameterTypes();
+                    if (parameterTypes.length == 2
+                            && parameterTypes[0].isInstance(Bukkit.getServer())
+                            && parameterTypes[1].equals(Command.class)) {
+                        wrapperConstructor = c;
+                    }
+                }
+                wrapperRegisterMethod = clazz.getMethod("register", CommandDispatcher.class, String.class);
+            } catch (ReflectiveOperationException ex) {
+                // Not available (e.g. servers which moved to their own brigadier implementation)
+                wrapperConstructor = null;
+            }
+        }
+
+        constructor = wrapperRegisterMethod == null ? null : wrapperConstructor;
+        registerMethod = wrapperRegisterMethod;
+    }
+
+    private RBukkitCommandWrapper() {}
+
+    /**
+     * Whether bukkit commands can be wrapped into brigadier nodes one by one on this server.
+     */
+    public static boolean isAvailable() {
+        return constructor != null;
+    }
+
+    /**
+     * Creates a brigadier wrapper for the given bukkit command.
+     */
+    public static Object newWrapper(Command command) {
+        try {
+            return constructor.newInstance(Bukkit.getServer(), command);
+        } catch (ReflectiveOperationException ex) {
+            throw new MinecraftReflectionException(ex);
+        }
+    }
+
+    /**
+     * Registers the wrapper as a child of the root node of the given dispatcher.
+     */
+    public static void register(Object wrapper, CommandDispatcher<?> dispatcher, String label) {
+        try {
+            registerMethod.invoke(wrapper, dispatcher, label);
+        } catch (ReflectiveOperationException ex) {
+            throw new MinecraftReflectionException(ex);
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package net.frankheijden.serverutils.bukkit.reflection;
 
+import com.mojang.brigadier.CommandDispatcher;
 import dev.frankheijden.minecraftreflection.MinecraftReflection;
 import dev.frankheijden.minecraftreflection.MinecraftReflectionVersion;
 import java.io.File;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import org.bukkit.Bukkit;
@@ -47,8 +50,16 @@ public class RCraftServer {
     /**
      * Syncs and registers all commands, but keeping the old values that haven't been added.
      */
-    @SuppressWarnings({"rawtypes"})
     public static void syncCommands(Set<String> removedCommands) {
+        syncCommands(removedCommands, Collections.emptySet());
+    }
+
+    /**
+     * Syncs and registers all commands, but keeping the old values that haven't been added.
+     * The old values of the added commands are replaced by their new values.
+     */
+    @SuppressWarnings({"rawtypes"})
+    public static void syncCommands(Set<String> removedCommands, Set<String> addedCommands) {
         if (MinecraftReflectionVersion.MINOR < 13) return;
 
         Collection children = RCommandDispatcher.getDispatcher().getRoot().getChildren();
@@ -57,6 +68,7 @@ public class RCraftServer {
 
         for (Object child : children) {
             String name = RCommandNode.getName(child);
+            if (addedCommands.contains(name)) continue;
             RCommandNode.removeCommand(root, name);
 
             if (!removedCommands.contains(name)) {
@@ -66,6 +78,39 @@ public class RCraftServer {
         updateCommands();
     }
 
+    /**
+     * Syncs only the brigadier nodes of the given commands, instead of rebuilding the whole tree.
+     * Nothing is changed if the nodes can't be created individually on this server (e.g. for vanilla commands).
+     * Online players are not updated, which is left to the caller.
+     * @return Whether the commands were synced, if not, a full sync is required.
+     */
+    public static boolean trySyncCommandsIncrementally(Set<String> removedCommands, Set<String> addedCommands) {
+        if (MinecraftReflectionVersion.MINOR < 13) return true;
+        if (!RBukkitCommandWrapper.isAvailable()) return false;
+
+        try {
+            Map<String, Command> knownCommands = RCommandMap.getKnownCommands(getCommandMap());
+            Map<String, Object> wrappers = new HashMap<>(addedCommands.size());
+            for (String label : addedCommands) {
+                Command command = knownCommands.get(label);
+                if (command == null) continue;
+                if (command.getClass().getSimpleName().equals("VanillaCommandWrapper")) return false;
+                wrappers.put(label, RBukkitCommandWrapper.newWrapper(command));
+            }
+
+            CommandDispatcher<?> dispatcher = RCommandDispatcher.getDispatcher();
+            RCommandDispatcher.removeCommands(removedCommands);
+            RCommandDispatcher.removeCommands(addedCommands);
+            for (Map.Entry<String, Object> entry : wrappers.entrySet()) {
+                RBukkitCommandWrapper.register(entry.getValue(), dispatcher, entry.getKey());
+            }
+        } catch (RuntimeException ex) {
+            ex.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
     /**
      * Updates commands for all online players.
      */
@@ -20,6 +20,14 @@ public class RJavaPlugin {
         return reflection.invoke(instance, "getFile");
     }
 
+    /**
+     * Points the data folder (and with it the config file) of the JavaPlugin to the given folder.
+     */
+    public static void setDataFolder(Object instance, File dataFolder) {
+        reflection.set(instance, "dataFolder", dataFolder);
+        reflection.set(instance, "configFile", new File(dataFolder, "config.yml"));
+    }
+
     /**
      * Clears the JavaPlugin from instances and returns the classloader associated with it.
      */
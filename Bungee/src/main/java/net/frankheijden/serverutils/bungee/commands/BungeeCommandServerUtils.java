@@ -1,7 +1,6 @@
 package net.frankheijden.serverutils.bungee.commands;
 
 import java.util.Arrays;
-import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import net.frankheijden.serverutils.bungee.ServerUtils;
@@ -49,21 +48,12 @@ public class BungeeCommandServerUtils extends CommandServerUtils<BungeePlugin, P
             String commandName
     ) {
         PluginManager proxyPluginManager = ServerUtils.getInstance().getProxy().getPluginManager();
-        Map<String, Command> commands;
-        try {
-            commands = RPluginManager.getCommands(proxyPluginManager);
-        } catch (IllegalAccessException ex) {
-            ex.printStackTrace();
-            builder.key("Error").value("Please check the console.");
-            return builder;
-        }
-
-        Command cmd = commands.get(commandName);
-        Plugin plugin = RPluginManager.getPlugin(proxyPluginManager, cmd);
+        Command cmd = RPluginManager.getCommands(proxyPluginManager).get(commandName);
+        Plugin owner = plugin.getPluginManager().getCommandIndex().getPlugin(cmd).orElse(null);
 
         return builder
                 .key("Name").value(cmd.getName())
-                .key("Plugin").value(plugin == null ? "<UNKNOWN>" : plugin.getDescription().getName())
+                .key("Plugin").value(owner == null ? "<UNKNOWN>" : owner.getDescription().getName())
                 .key("Aliases").value(listBuilderFunction.apply(b -> b.addAll(Arrays.asList(cmd.getAliases()))))
                 .key("Permission").value(cmd.getPermission());
     }
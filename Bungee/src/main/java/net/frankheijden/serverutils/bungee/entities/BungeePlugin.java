@@ -8,6 +8,7 @@ import net.frankheijden.serverutils.bungee.ServerUtils;
 import net.frankheijden.serverutils.bungee.commands.BungeeCommandPlugins;
 import net.frankheijden.serverutils.bungee.commands.BungeeCommandServerUtils;
 import net.frankheijden.serverutils.bungee.listeners.BungeePlayerListener;
+import net.frankheijden.serverutils.bungee.listeners.BungeePluginListener;
 import net.frankheijden.serverutils.bungee.managers.BungeePluginManager;
 import net.frankheijden.serverutils.bungee.managers.BungeeTaskManager;
 import net.frankheijden.serverutils.common.entities.ServerUtilsPlugin;
@@ -91,6 +92,7 @@ public class BungeePlugin extends ServerUtilsPlugin<Plugin, ScheduledTask, Bunge
     @Override
     protected void enablePlugin() {
         plugin.getProxy().getPluginManager().registerListener(plugin, new BungeePlayerListener(this));
+        plugin.getProxy().getPluginManager().registerListener(plugin, new BungeePluginListener(this));
     }
 
     @Override
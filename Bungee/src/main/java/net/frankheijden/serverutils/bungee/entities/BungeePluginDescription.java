@@ -41,6 +41,11 @@ public class BungeePluginDescription implements ServerUtilsPluginDescription {
         return this.description.getAuthor();
     }
 
+    @Override
+    public String getMain() {
+        return this.description.getMain();
+    }
+
     @Override
     public File getFile() {
         return this.file;
@@ -0,0 +1,46 @@
+package net.frankheijden.serverutils.bungee.listeners;
+
+import net.frankheijden.serverutils.bungee.entities.BungeeAudience;
+import net.frankheijden.serverutils.bungee.entities.BungeePlugin;
+import net.frankheijden.serverutils.bungee.events.BungeePluginEnableEvent;
+import net.frankheijden.serverutils.bungee.events.BungeePluginLoadEvent;
+import net.frankheijden.serverutils.bungee.events.BungeePluginUnloadEvent;
+import net.frankheijden.serverutils.common.events.PluginEvent;
+import net.frankheijden.serverutils.common.listeners.PluginListener;
+import net.md_5.bungee.api.plugin.Listener;
+import net.md_5.bungee.api.plugin.Plugin;
+import net.md_5.bungee.event.EventHandler;
+import net.md_5.bungee.event.EventPriority;
+
+public class BungeePluginListener extends PluginListener<BungeePlugin, Plugin, BungeeAudience>
+        implements Listener {
+
+    public BungeePluginListener(BungeePlugin plugin) {
+        super(plugin);
+    }
+
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onPluginLoad(BungeePluginLoadEvent event) {
+        handleLoad(event);
+        invalidateCommandIndex(event);
+    }
+
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onPluginEnable(BungeePluginEnableEvent event) {
+        invalidateCommandIndex(event);
+    }
+
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onPluginUnload(BungeePluginUnloadEvent event) {
+        handleUnload(event);
+        invalidateCommandIndex(event);
+    }
+
+    /**
+     * Invalidates the command index, as plugins (un)register their commands while being enabled or unloaded.
+     */
+    private void invalidateCommandIndex(PluginEvent<Plugin> event) {
+        if (event.getStage() != PluginEvent.Stage.POST) return;
+        plugin.getPluginManager().getCommandIndex().invalidate();
+    }
+}
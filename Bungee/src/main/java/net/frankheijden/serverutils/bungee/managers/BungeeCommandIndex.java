@@ -0,0 +1,98 @@
+package net.frankheijden.serverutils.bungee.managers;
+
+import com.google.common.collect.Multimap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import net.frankheijden.serverutils.bungee.reflection.RPluginManager;
+import net.md_5.bungee.api.plugin.Command;
+import net.md_5.bungee.api.plugin.Plugin;
+import net.md_5.bungee.api.plugin.PluginManager;
+
+/**
+ * An index of the commands known to the proxy and the plugins which registered them, such that the owner of a
+ * command can be found without walking all registrations. The index is built lazily on the first lookup after it
+ * was invalidated, or after the registered commands changed (e.g. a plugin registering commands at runtime).
+ * Changes are detected by the amount of command names and registrations, and otherwise on lookup: a command which
+ * isn't indexed, or names which no longer map to the indexed commands, cause the index to be rebuilt.
+ */
+public class BungeeCommandIndex {
+
+    private final PluginManager proxyPluginManager;
+    private Map<Command, Plugin> owners = null;
+    private Map<String, Command> indexedCommands = null;
+    private Set<String> commandNames = null;
+    private int indexedRegistrations = -1;
+
+    public BungeeCommandIndex(PluginManager proxyPluginManager) {
+        this.proxyPluginManager = proxyPluginManager;
+    }
+
+    /**
+     * Retrieves the plugin which registered the given command.
+     */
+    public synchronized Optional<Plugin> getPlugin(Command command) {
+        if (command == null) return Optional.empty();
+        ensureUpToDate();
+        if (!owners.containsKey(command)) rebuild(); // Registered in place of another command
+        return Optional.ofNullable(owners.get(command));
+    }
+
+    /**
+     * Retrieves the names of all registered commands.
+     */
+    public synchronized Set<String> getCommandNames() {
+        ensureUpToDate();
+        for (Map.Entry<String, Command> entry : RPluginManager.getCommands(proxyPluginManager).entrySet()) {
+            if (indexedCommands.get(entry.getKey()) != entry.getValue()) {
+                rebuild();
+                break;
+            }
+        }
+        return commandNames;
+    }
+
+    /**
+     * Invalidates the index, such that it is rebuilt on the next lookup.
+     */
+    public synchronized void invalidate() {
+        owners = null;
+        indexedCommands = null;
+        commandNames = null;
+        indexedRegistrations = -1;
+    }
+
+    private void ensureUpToDate() {
+        if (owners != null
+                && indexedCommands.size() == RPluginManager.getCommands(proxyPluginManager).size()
+                && indexedRegistrations == getRegistrations()) {
+            return;
+        }
+        rebuild();
+    }
+
+    private void rebuild() {
+        Map<String, Command> commands = RPluginManager.getCommands(proxyPluginManager);
+        Multimap<Plugin, Command> commandsByPlugin = RPluginManager.getCommandsByPlugin(proxyPluginManager);
+        Map<Command, Plugin> owners = new IdentityHashMap<>();
+        if (commandsByPlugin != null) {
+            for (Map.Entry<Plugin, Command> entry : commandsByPlugin.entries()) {
+                owners.put(entry.getValue(), entry.getKey());
+            }
+        }
+
+        this.owners = owners;
+        this.indexedCommands = new HashMap<>(commands);
+        this.commandNames = Collections.unmodifiableSet(new HashSet<>(commands.keySet()));
+        this.indexedRegistrations = commandsByPlugin == null ? -1 : commandsByPlugin.size();
+    }
+
+    private int getRegistrations() {
+        Multimap<Plugin, Command> commandsByPlugin = RPluginManager.getCommandsByPlugin(proxyPluginManager);
+        return commandsByPlugin == null ? -1 : commandsByPlugin.size();
+    }
+}
@@ -1,9 +1,9 @@
 package net.frankheijden.serverutils.bungee.managers;
 
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
@@ -13,8 +13,6 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.Stack;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 import net.frankheijden.serverutils.bungee.entities.BungeePluginDescription;
@@ -31,6 +29,7 @@ import net.frankheijden.serverutils.common.entities.results.PluginResults;
 import net.frankheijden.serverutils.common.entities.results.Result;
 import net.frankheijden.serverutils.common.events.PluginEvent;
 import net.frankheijden.serverutils.common.managers.AbstractPluginManager;
+import net.frankheijden.serverutils.common.utils.JarUtils;
 import net.md_5.bungee.api.ProxyServer;
 import net.md_5.bungee.api.plugin.Plugin;
 import net.md_5.bungee.api.plugin.PluginDescription;
@@ -43,14 +42,21 @@ public class BungeePluginManager extends AbstractPluginManager<Plugin, BungeePlu
 
     private static BungeePluginManager instance;
 
+    private final BungeeCommandIndex commandIndex;
+
     public BungeePluginManager() {
         instance = this;
+        this.commandIndex = new BungeeCommandIndex(proxy.getPluginManager());
     }
 
     public static BungeePluginManager get() {
         return instance;
     }
 
+    public BungeeCommandIndex getCommandIndex() {
+        return commandIndex;
+    }
+
     /**
      * Checks whether a loaded plugin is a module.
      * @param plugin The plugin to check.
@@ -77,31 +83,27 @@ public class BungeePluginManager extends AbstractPluginManager<Plugin, BungeePlu
         Map<String, PluginDescription> toLoad = RPluginManager.getToLoad(proxyPluginManager);
         if (toLoad == null) toLoad = new HashMap<>(descriptions.size());
 
-        Map<PluginDescription, Boolean> pluginStatuses = new HashMap<>();
-        for (Plugin plugin : getPlugins()) {
-            PluginDescription desc = plugin.getDescription();
-            pluginStatuses.put(desc, true);
-            toLoad.put(desc.getName(), desc);
-        }
-
         for (BungeePluginDescription description : descriptions) {
             PluginDescription desc = description.getDescription();
             toLoad.put(desc.getName(), desc);
         }
+        Map<PluginDescription, Boolean> pluginStatuses = resolveLoadedDependencies(descriptions, toLoad);
 
         RPluginManager.setToLoad(proxyPluginManager, toLoad);
 
-        for (Map.Entry<String, PluginDescription> entry : toLoad.entrySet()) {
+        int loadedCount = 0;
+        for (BungeePluginDescription description : descriptions) {
             // Yeah... loadPlugins() calls enablePlugin()
-            if (!RPluginManager.enablePlugin(proxyPluginManager, pluginStatuses, new Stack<>(), entry.getValue())) {
-                return loadResults.addResult(entry.getKey(), Result.ERROR);
-            }
+            PluginDescription desc = description.getDescription();
+            if (!RPluginManager.enablePlugin(proxyPluginManager, pluginStatuses, new Stack<>(), desc)) break;
+            loadedCount++;
         }
 
         toLoad.clear();
         RPluginManager.setToLoad(proxyPluginManager, null);
 
-        for (BungeePluginDescription description : descriptions) {
+        // The plugins loaded before a failure stay loaded, so their results must be reported as well
+        for (BungeePluginDescription description : descriptions.subList(0, loadedCount)) {
             Optional<Plugin> pluginOptional = getPlugin(description.getId());
             if (!pluginOptional.isPresent()) return loadResults.addResult(description.getId(), Result.ERROR);
 
@@ -111,9 +113,41 @@ public class BungeePluginManager extends AbstractPluginManager<Plugin, BungeePlu
             loadResults.addResult(description.getId(), plugin);
         }
 
+        if (loadedCount < descriptions.size()) {
+            return loadResults.addResult(descriptions.get(loadedCount).getId(), Result.ERROR);
+        }
         return loadResults;
     }
 
+    /**
+     * Adds the already loaded plugins which the given descriptions (soft)depend on to the plugins to load, such that
+     * the proxy's dependency resolver only has to walk the new descriptions instead of every installed plugin.
+     * @return The statuses of the added plugins, all of which are loaded already.
+     */
+    private Map<PluginDescription, Boolean> resolveLoadedDependencies(
+            List<BungeePluginDescription> descriptions,
+            Map<String, PluginDescription> toLoad
+    ) {
+        Map<PluginDescription, Boolean> pluginStatuses = new HashMap<>();
+        for (BungeePluginDescription description : descriptions) {
+            PluginDescription desc = description.getDescription();
+            List<String> dependencies = new ArrayList<>(desc.getDepends());
+            dependencies.addAll(desc.getSoftDepends());
+
+            for (String dependency : dependencies) {
+                if (toLoad.containsKey(dependency)) continue;
+
+                Plugin plugin = proxy.getPluginManager().getPlugin(dependency);
+                if (plugin == null) continue;
+
+                PluginDescription dependencyDescription = plugin.getDescription();
+                toLoad.put(dependency, dependencyDescription);
+                pluginStatuses.put(dependencyDescription, true);
+            }
+        }
+        return pluginStatuses;
+    }
+
     @Override
     public PluginResults<Plugin> enableOrderedPlugins(List<Plugin> plugins) {
         PluginResults<Plugin> enableResults = new PluginResults<>();
@@ -206,23 +240,6 @@ public class BungeePluginManager extends AbstractPluginManager<Plugin, BungeePlu
         }
     }
 
-    @Override
-    public Optional<File> getPluginFile(String pluginId) {
-        for (File file : getPluginJars()) {
-            BungeePluginDescription description;
-            try {
-                Optional<BungeePluginDescription> descriptionOptional = getPluginDescription(file);
-                if (!descriptionOptional.isPresent()) continue;
-                description = descriptionOptional.get();
-            } catch (Exception ex) {
-                continue;
-            }
-
-            if (description.getId().equals(pluginId)) return Optional.of(file);
-        }
-        return Optional.empty();
-    }
-
     @Override
     public Optional<Plugin> getPlugin(String pluginName) {
         return Optional.ofNullable(proxy.getPluginManager().getPlugin(pluginName));
@@ -240,35 +257,32 @@ public class BungeePluginManager extends AbstractPluginManager<Plugin, BungeePlu
 
     @Override
     public Set<String> getCommands() {
-        return proxy.getPluginManager().getCommands().stream()
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toSet());
+        return commandIndex.getCommandNames();
     }
 
     @Override
     public Optional<BungeePluginDescription> getPluginDescription(File file) throws InvalidPluginDescriptionException {
-        try (JarFile jar = new JarFile(file)) {
-            JarEntry entry = jar.getJarEntry("bungee.yml");
-            if (entry == null) {
-                entry = jar.getJarEntry("plugin.yml");
+        try {
+            Optional<byte[]> bytes = JarUtils.readEntry(file, "bungee.yml", "plugin.yml");
+            if (!bytes.isPresent()) {
+                throw new InvalidPluginDescriptionException("Plugin must have a plugin.yml or bungee.yml");
             }
 
-            if (entry == null) {
-                throw new InvalidPluginDescriptionException("Plugin must have a plugin.yml or bungee.yml");
+            // The proxy's Yaml instance is not thread-safe, while descriptions may be scanned in parallel
+            Yaml yaml = RPluginManager.getYaml(proxy.getPluginManager());
+            PluginDescription description;
+            synchronized (yaml) {
+                description = yaml.loadAs(new ByteArrayInputStream(bytes.get()), PluginDescription.class);
             }
 
-            try (InputStream in = jar.getInputStream(entry)) {
-                Yaml yaml = RPluginManager.getYaml(proxy.getPluginManager());
-                PluginDescription description = yaml.loadAs(in, PluginDescription.class);
-                if (description.getName() == null) {
-                    throw new InvalidPluginDescriptionException("Plugin from " + file + " has no name");
-                } else if (description.getMain() == null) {
-                    throw new InvalidPluginDescriptionException("Plugin from " + file + " has no main");
-                }
-
-                description.setFile(file);
-                return Optional.of(new BungeePluginDescription(description));
+            if (description.getName() == null) {
+                throw new InvalidPluginDescriptionException("Plugin from " + file + " has no name");
+            } else if (description.getMain() == null) {
+                throw new InvalidPluginDescriptionException("Plugin from " + file + " has no main");
             }
+
+            description.setFile(file);
+            return Optional.of(new BungeePluginDescription(description));
         } catch (IOException ex) {
             throw new InvalidPluginDescriptionException(ex);
         }
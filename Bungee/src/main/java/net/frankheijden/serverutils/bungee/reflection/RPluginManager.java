@@ -33,10 +33,14 @@ public class RPluginManager {
         return reflection.get(instance, "yaml");
     }
 
-    public static Map<String, Command> getCommands(Object instance) throws IllegalAccessException {
+    public static Map<String, Command> getCommands(Object instance) {
         return reflection.get(instance, "commandMap");
     }
 
+    public static Multimap<Plugin, Command> getCommandsByPlugin(Object instance) {
+        return reflection.get(instance, "commandsByPlugin");
+    }
+
     public static Map<String, PluginDescription> getToLoad(Object pluginManager) {
         return reflection.get(pluginManager, "toLoad");
     }
@@ -60,20 +64,4 @@ public class RPluginManager {
                 ClassObject.of(PluginDescription.class, plugin)
         );
     }
-
-    /**
-     * Retrieves the registered plugin of the command.
-     * @param instance The PluginManager instance.
-     * @param cmd The command to check the plugin of.
-     * @return The plugin of the command.
-     */
-    public static Plugin getPlugin(Object instance, Command cmd) {
-        Multimap<Plugin, Command> plugins = reflection.get(instance, "commandsByPlugin");
-        if (plugins == null) return null;
-
-        for (Map.Entry<Plugin, Command> entry : plugins.entries()) {
-            if (entry.getValue().equals(cmd)) return entry.getKey();
-        }
-        return null;
-    }
 }
@@ -62,7 +62,7 @@ public class ServerUtilsApp<U extends ServerUtilsPlugin<P, T, C, S, D>, P, T, C
             P updaterPlugin = updaterPluginOptional.get();
 
             @SuppressWarnings("VariableDeclarationUsageDistance")
-            File file = plugin.getPluginManager().getPluginFile(updaterPlugin);
+            File file = plugin.getPluginManager().getPluginSourceFile(updaterPlugin);
             PluginResult<P> disableResult = plugin.getPluginManager().disablePlugin(updaterPlugin);
             if (!disableResult.isSuccess()) {
                 disableResult.sendTo(plugin.getChatProvider().getConsoleServerAudience(), null);
@@ -76,6 +76,7 @@ public class ServerUtilsApp<U extends ServerUtilsPlugin<P, T, C, S, D>, P, T, C
             }
 
             unloadResult.tryClose();
+            plugin.getPluginManager().collectJarGarbage();
 
             if (Files.exists(file.toPath())) {
                 try {
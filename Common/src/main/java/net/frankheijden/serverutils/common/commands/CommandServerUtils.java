@@ -10,9 +10,11 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.IntFunction;
+import java.util.logging.Level;
 import net.frankheijden.serverutils.common.commands.arguments.JarFilesArgument;
 import net.frankheijden.serverutils.common.commands.arguments.PluginArgument;
 import net.frankheijden.serverutils.common.commands.arguments.PluginsArgument;
@@ -79,6 +81,8 @@ public abstract class CommandServerUtils<U extends ServerUtilsPlugin<P, ?, C, ?,
                         new PluginsArgument.PluginsParser<>(plugin, arrayCreator, getRawPath("reloadplugin"))
                 ))
                 .handler(this::handleReloadPlugin));
+        registerSubcommand(manager, builder, "reloadchanged", subcommandBuilder -> subcommandBuilder
+                .handler(this::handleReloadChanged));
         registerSubcommand(manager, builder, "watchplugin", subcommandBuilder -> subcommandBuilder
                 .argument(new PluginsArgument<>(
                         true,
@@ -188,15 +192,21 @@ public abstract class CommandServerUtils<U extends ServerUtilsPlugin<P, ?, C, ?,
         List<File> jarFiles = Arrays.asList(context.get("jarFiles"));
 
         AbstractPluginManager<P, ?> pluginManager = plugin.getPluginManager();
-        PluginResults<P> loadResults = pluginManager.loadPlugins(jarFiles);
-        if (!loadResults.isSuccess()) {
-            PluginResult<P> failedResult = loadResults.last();
-            failedResult.sendTo(sender, null);
-            return;
-        }
+        pluginManager.loadPluginsAsync(jarFiles).whenComplete((loadResults, th) -> {
+            if (th != null) {
+                handleAsyncError(sender, "loadplugin", th);
+                return;
+            }
+
+            if (!loadResults.isSuccess()) {
+                PluginResult<P> failedResult = loadResults.last();
+                failedResult.sendTo(sender, null);
+                return;
+            }
 
-        PluginResults<P> enableResults = pluginManager.enablePlugins(loadResults.getPlugins());
-        enableResults.sendTo(sender, MessageKey.LOADPLUGIN);
+            PluginResults<P> enableResults = pluginManager.enablePlugins(loadResults.getPlugins());
+            enableResults.sendTo(sender, MessageKey.LOADPLUGIN);
+        });
     }
 
     private void handleUnloadPlugin(CommandContext<C> context) {
@@ -221,6 +231,7 @@ public abstract class CommandServerUtils<U extends ServerUtilsPlugin<P, ?, C, ?,
 
         CloseablePluginResults<P> unloadResults = plugin.getPluginManager().unloadPlugins(plugins);
         unloadResults.tryClose();
+        plugin.getPluginManager().collectJarGarbage();
         unloadResults.sendTo(sender, MessageKey.UNLOADPLUGIN);
     }
 
@@ -240,8 +251,44 @@ public abstract class CommandServerUtils<U extends ServerUtilsPlugin<P, ?, C, ?,
             return;
         }
 
-        PluginResults<P> reloadResults = plugin.getPluginManager().reloadPlugins(plugins);
-        reloadResults.sendTo(sender, MessageKey.RELOADPLUGIN_SUCCESS);
+        plugin.getPluginManager().reloadPluginsAsync(plugins).whenComplete((reloadResults, th) -> {
+            if (th != null) {
+                handleAsyncError(sender, "reloadplugin", th);
+                return;
+            }
+
+            reloadResults.sendTo(sender, MessageKey.RELOADPLUGIN_SUCCESS);
+        });
+    }
+
+    private void handleReloadChanged(CommandContext<C> context) {
+        C sender = context.getSender();
+
+        AbstractPluginManager<P, ?> pluginManager = plugin.getPluginManager();
+        pluginManager.findChangedPluginsAsync().thenCompose(plugins -> {
+            if (plugins.isEmpty()) {
+                plugin.getMessagesResource().get(MessageKey.RELOADCHANGED_NONE).sendTo(sender);
+                return CompletableFuture.completedFuture(null);
+            }
+
+            if (checkProtectedPlugins(sender, plugins) || checkServerUtils(context, sender, plugins)) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            return pluginManager.reloadPluginsAsync(plugins);
+        }).whenComplete((reloadResults, th) -> {
+            if (th != null) {
+                handleAsyncError(sender, "reloadchanged", th);
+                return;
+            }
+
+            if (reloadResults != null) reloadResults.sendTo(sender, MessageKey.RELOADPLUGIN_SUCCESS);
+        });
+    }
+
+    private void handleAsyncError(C sender, String subcommand, Throwable th) {
+        plugin.getLogger().log(Level.SEVERE, "Unable to execute '" + subcommand + "'", th);
+        new PluginResult<P>(subcommand, Result.ERROR).sendTo(sender, null);
     }
 
     protected boolean checkDependingPlugins(CommandContext<C> context, C sender, List<P> plugins, String subcommand) {
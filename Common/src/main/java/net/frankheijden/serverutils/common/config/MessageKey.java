@@ -10,6 +10,7 @@ public enum MessageKey implements PlaceholderConfigKey {
     SERVERUTILS_UPDATER("serverutils-updater", false),
     RELOADPLUGIN_SUCCESS("reloadplugin.success"),
     RELOADPLUGIN_SERVERUTILS("reloadplugin.serverutils"),
+    RELOADCHANGED_NONE("reloadchanged.none", false),
     GENERIC_PREFIX("generic.prefix", false),
     GENERIC_ERROR("generic.error", false),
     GENERIC_NOT_EXISTS("generic.not-exists"),
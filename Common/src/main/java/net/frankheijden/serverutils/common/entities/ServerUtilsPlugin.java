@@ -12,6 +12,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import net.frankheijden.serverutils.common.ServerUtilsApp;
 import net.frankheijden.serverutils.common.commands.brigadier.BrigadierHandler;
@@ -19,8 +20,6 @@ import net.frankheijden.serverutils.common.config.CommandsResource;
 import net.frankheijden.serverutils.common.config.ConfigResource;
 import net.frankheijden.serverutils.common.config.MessageKey;
 import net.frankheijden.serverutils.common.config.MessagesResource;
-import net.frankheijden.serverutils.common.entities.results.CloseablePluginResults;
-import net.frankheijden.serverutils.common.entities.results.PluginResults;
 import net.frankheijden.serverutils.common.managers.AbstractPluginManager;
 import net.frankheijden.serverutils.common.managers.AbstractTaskManager;
 import net.frankheijden.serverutils.common.managers.UpdateManager;
@@ -120,15 +119,14 @@ public abstract class ServerUtilsPlugin<P, T, C extends ServerUtilsAudience<S>,
 
         if (plugins.isEmpty()) return;
 
-        PluginResults<P> disableResults = getPluginManager().disablePlugins(plugins);
-        if (!disableResults.isSuccess()) {
-            disableResults.sendTo(getChatProvider().getConsoleServerAudience(), null);
-            return;
-        }
+        getPluginManager().unloadPluginsBudgeted(plugins).whenComplete((unloadResults, th) -> {
+            if (th != null) {
+                getLogger().log(Level.SEVERE, "Unable to unload plugins defined in 'unload-after-startup'", th);
+                return;
+            }
 
-        CloseablePluginResults<P> unloadResults = getPluginManager().unloadPlugins(plugins);
-        unloadResults.tryClose();
-        unloadResults.sendTo(getChatProvider().getConsoleServerAudience(), MessageKey.UNLOADPLUGIN);
+            unloadResults.sendTo(getChatProvider().getConsoleServerAudience(), MessageKey.UNLOADPLUGIN);
+        });
     }
 
     protected abstract CommandManager<C> newCommandManager();
@@ -152,6 +150,9 @@ public abstract class ServerUtilsPlugin<P, T, C extends ServerUtilsAudience<S>,
         }
 
         reload();
+        getPluginManager().collectJarGarbage();
+        getPluginManager().adoptFingerprints();
+        getPluginManager().reseedDependencyGraph();
         enablePlugin();
         getTaskManager().runTaskLater(
                 this::unloadConfiguredPlugins,
@@ -183,6 +184,7 @@ public abstract class ServerUtilsPlugin<P, T, C extends ServerUtilsAudience<S>,
         this.messagesResource = new MessagesResource(this);
         this.messagesResource.load(Arrays.asList(MessageKey.values()));
         this.commandManager = newCommandManager();
+        watchManager.updateHotDrop();
         reloadPlugin();
     }
 
@@ -13,6 +13,11 @@ public interface ServerUtilsPluginDescription {
 
     String getAuthor();
 
+    /**
+     * Retrieves the fully qualified name of the plugin's main class, or null if the platform doesn't expose it.
+     */
+    String getMain();
+
     File getFile();
 
     Set<String> getDependencies();
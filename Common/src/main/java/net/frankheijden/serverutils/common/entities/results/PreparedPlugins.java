@@ -0,0 +1,43 @@
+package net.frankheijden.serverutils.common.entities.results;
+
+import java.util.Collections;
+import java.util.List;
+import net.frankheijden.serverutils.common.entities.ServerUtilsPluginDescription;
+
+/**
+ * The outcome of preparing plugins to be loaded: either their descriptions in load order, or the failed results.
+ * Preparing is thread-safe, such that only committing the prepared plugins needs to happen on the main thread.
+ */
+public class PreparedPlugins<P, D extends ServerUtilsPluginDescription> {
+
+    private final List<D> descriptions;
+    private final PluginResults<P> failure;
+
+    private PreparedPlugins(List<D> descriptions, PluginResults<P> failure) {
+        this.descriptions = descriptions;
+        this.failure = failure;
+    }
+
+    public static <P, D extends ServerUtilsPluginDescription> PreparedPlugins<P, D> success(List<D> descriptions) {
+        return new PreparedPlugins<>(Collections.unmodifiableList(descriptions), null);
+    }
+
+    public static <P, D extends ServerUtilsPluginDescription> PreparedPlugins<P, D> failure(PluginResults<P> failure) {
+        return new PreparedPlugins<>(Collections.emptyList(), failure);
+    }
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+    /**
+     * Retrieves the prepared descriptions, in the order in which they must be loaded.
+     */
+    public List<D> getDescriptions() {
+        return descriptions;
+    }
+
+    public PluginResults<P> getFailure() {
+        return failure;
+    }
+}
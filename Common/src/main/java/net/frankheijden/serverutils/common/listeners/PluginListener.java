@@ -0,0 +1,31 @@
+package net.frankheijden.serverutils.common.listeners;
+
+import net.frankheijden.serverutils.common.entities.ServerUtilsAudience;
+import net.frankheijden.serverutils.common.entities.ServerUtilsPlugin;
+import net.frankheijden.serverutils.common.events.PluginEvent;
+
+public abstract class PluginListener<U extends ServerUtilsPlugin<P, ?, C, ?, ?>, P, C extends ServerUtilsAudience<?>>
+        extends ServerUtilsListener<U, C> {
+
+    protected PluginListener(U plugin) {
+        super(plugin);
+    }
+
+    /**
+     * Updates the dependency graph after a plugin has been loaded.
+     * @param event The plugin load event.
+     */
+    protected void handleLoad(PluginEvent<P> event) {
+        if (event.getStage() != PluginEvent.Stage.POST) return;
+        plugin.getPluginManager().handlePluginLoaded(event.getPlugin());
+    }
+
+    /**
+     * Updates the dependency graph after a plugin has been unloaded.
+     * @param event The plugin unload event.
+     */
+    protected void handleUnload(PluginEvent<P> event) {
+        if (event.getStage() != PluginEvent.Stage.POST) return;
+        plugin.getPluginManager().handlePluginUnloaded(event.getPlugin());
+    }
+}
@@ -1,27 +1,264 @@
 package net.frankheijden.serverutils.common.managers;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import net.frankheijden.serverutils.common.ServerUtilsApp;
 import net.frankheijden.serverutils.common.entities.results.CloseablePluginResult;
 import net.frankheijden.serverutils.common.entities.results.CloseablePluginResults;
 import net.frankheijden.serverutils.common.entities.results.PluginResult;
 import net.frankheijden.serverutils.common.entities.results.PluginResults;
+import net.frankheijden.serverutils.common.entities.results.PreparedPlugins;
 import net.frankheijden.serverutils.common.entities.results.Result;
 import net.frankheijden.serverutils.common.entities.ServerUtilsPluginDescription;
 import net.frankheijden.serverutils.common.entities.exceptions.InvalidPluginDescriptionException;
 import net.frankheijden.serverutils.common.providers.PluginProvider;
 import net.frankheijden.serverutils.common.utils.DependencyUtils;
+import net.frankheijden.serverutils.common.utils.FileUtils;
+import net.frankheijden.serverutils.common.utils.JarUtils;
+import net.frankheijden.serverutils.common.utils.ParallelUtils;
 
 public abstract class AbstractPluginManager<P, D extends ServerUtilsPluginDescription> implements PluginProvider<P, D> {
 
+    private static final String DESCRIPTION_INDEX_FILE = ".pluginDescriptionIndex.json";
+    private static final String JAR_CACHE_DIRECTORY = "jar-cache";
+
+    private PluginDescriptionIndex<D> descriptionIndex = null;
+    private PluginDescriptionScanner<D> descriptionScanner = null;
+    private PluginJarCache jarCache = null;
+    private PluginDependencyGraph dependencyGraph = null;
+    private final PluginFingerprints fingerprints = new PluginFingerprints();
+    private CompletableFuture<?> lastOperation = CompletableFuture.completedFuture(null);
+
+    /**
+     * Retrieves the persistent index of plugin descriptions, loading it from the data folder on first use.
+     */
+    public synchronized PluginDescriptionIndex<D> getDescriptionIndex() {
+        if (descriptionIndex == null) {
+            descriptionIndex = PluginDescriptionIndex.load(
+                    ServerUtilsApp.getPlugin().getDataFolder().toPath().resolve(DESCRIPTION_INDEX_FILE),
+                    this::getPluginDescription
+            );
+        }
+        return descriptionIndex;
+    }
+
+    /**
+     * Retrieves the parallel scanner which parses descriptions using this manager's descriptor parser.
+     */
+    public synchronized PluginDescriptionScanner<D> getDescriptionScanner() {
+        if (descriptionScanner == null) {
+            descriptionScanner = new PluginDescriptionScanner<>(this::getPluginDescription);
+        }
+        return descriptionScanner;
+    }
+
+    /**
+     * Retrieves the cache of plugin jar copies, located in the data folder.
+     */
+    public synchronized PluginJarCache getJarCache() {
+        if (jarCache == null) {
+            Path directory = ServerUtilsApp.getPlugin().getDataFolder().toPath().resolve(JAR_CACHE_DIRECTORY);
+            jarCache = new PluginJarCache(directory);
+        }
+        return jarCache;
+    }
+
+    /**
+     * Whether plugins should be loaded from copies in the {@link PluginJarCache}, instead of from the plugins folder,
+     * as configured by "shadow-copy.enabled".
+     * Note that on Bukkit the data folder is derived from the jar's folder when the plugin is constructed, and is only
+     * pointed back at the plugins folder afterwards. Files which a plugin resolves in its constructor or field
+     * initializers (e.g. {@code new File(getDataFolder(), "data.yml")}) thus still point into the cache.
+     */
+    public boolean isShadowCopyEnabled() {
+        return supportsShadowCopy()
+                && ServerUtilsApp.getPlugin().getConfigResource().getConfig().getBoolean("shadow-copy.enabled");
+    }
+
+    /**
+     * Whether the platform is able to load plugins from outside the plugins folder, while keeping their data folder.
+     */
+    protected boolean supportsShadowCopy() {
+        return true;
+    }
+
+    /**
+     * Retrieves the jar of the given plugin in the plugins folder, i.e. the jar it was copied from if it was loaded
+     * from the {@link PluginJarCache}.
+     */
+    public File getPluginSourceFile(P plugin) {
+        File file = getPluginFile(plugin);
+        if (!getJarCache().contains(file)) return file;
+        return getPluginFile(getPluginId(plugin)).orElse(file);
+    }
+
+    /**
+     * Deletes the copies in the {@link PluginJarCache} which are no longer used by any loaded plugin.
+     * Must be called on the main thread, after the unloaded plugins' classloaders have been closed.
+     */
+    public void collectJarGarbage() {
+        List<File> usedFiles = new ArrayList<>();
+        for (P plugin : getPlugins()) {
+            usedFiles.add(getPluginFile(plugin));
+        }
+        getJarCache().collectGarbage(usedFiles);
+    }
+
+    /**
+     * Retrieves the fingerprints of the jars the loaded plugins were loaded from.
+     */
+    public PluginFingerprints getFingerprints() {
+        return fingerprints;
+    }
+
+    /**
+     * Records the fingerprints of the loaded plugins which have none yet, i.e. those which were loaded by the server
+     * itself, off the main thread. Must be called on the main thread.
+     */
+    public void adoptFingerprints() {
+        Map<String, File> pluginFiles = new HashMap<>();
+        for (P plugin : getPlugins()) {
+            pluginFiles.put(getPluginId(plugin), getPluginFile(plugin));
+        }
+
+        ServerUtilsApp.getPlugin().getTaskManager().runTaskAsynchronously(() -> {
+            pluginFiles.forEach((pluginId, file) -> {
+                if (file != null) fingerprints.adopt(pluginId, file);
+            });
+        });
+    }
+
+    /**
+     * Finds the plugins whose jar contents changed since they were loaded, plus the plugins (transitively) depending
+     * on them, as those need to be reloaded as well. The jars are compared off the main thread, and the returned
+     * future completes on the main thread.
+     */
+    public CompletableFuture<List<P>> findChangedPluginsAsync() {
+        List<String> pluginIds = getPluginIds(getPlugins());
+
+        AbstractTaskManager<?> taskManager = ServerUtilsApp.getPlugin().getTaskManager();
+        return taskManager.supplyTaskAsynchronously(() -> {
+            List<String> changedIds = new ArrayList<>();
+            for (String pluginId : pluginIds) {
+                Optional<File> fileOptional = getPluginFile(pluginId);
+                if (fileOptional.isPresent() && fingerprints.hasChanged(pluginId, fileOptional.get())) {
+                    changedIds.add(pluginId);
+                }
+            }
+            return changedIds;
+        }).thenCompose(changedIds -> taskManager.supplyTask(() -> {
+            Set<String> reloadIds = new LinkedHashSet<>(changedIds);
+            for (String changedId : changedIds) {
+                for (P dependent : queryDependencyGraph(changedId, PluginDependencyGraph::getTransitiveDependents)) {
+                    reloadIds.add(getPluginId(dependent));
+                }
+            }
+
+            List<P> plugins = new ArrayList<>(reloadIds.size());
+            for (String reloadId : reloadIds) {
+                getPlugin(reloadId).ifPresent(plugins::add);
+            }
+            return plugins;
+        }));
+    }
+
+    /**
+     * Retrieves the live dependency graph of loaded plugins, which is kept current by plugin load and unload events.
+     * The graph is seeded from the loaded plugins on first use.
+     */
+    public synchronized PluginDependencyGraph getDependencyGraph() {
+        if (dependencyGraph == null) reseedDependencyGraph();
+        return dependencyGraph;
+    }
+
+    /**
+     * Rebuilds the dependency graph from all loaded plugins. This is done on startup, and whenever the graph was
+     * found to be out of sync with the server (e.g. plugins (un)loaded by other means than ServerUtils).
+     */
+    public synchronized void reseedDependencyGraph() {
+        if (dependencyGraph == null) {
+            dependencyGraph = new PluginDependencyGraph();
+        } else {
+            dependencyGraph.clear();
+        }
+
+        for (P plugin : getPlugins()) {
+            D description = getLoadedPluginDescription(plugin);
+            dependencyGraph.add(description.getId(), description.getDependencies());
+        }
+    }
+
+    /**
+     * Queries the dependency graph about the given plugin, and resolves the resulting ids to loaded plugins.
+     * If this shows the graph is out of sync with the server, i.e. the plugin is loaded but unknown to the graph, or
+     * a resulting plugin isn't loaded anymore, the graph is reseeded and queried again.
+     */
+    private List<P> queryDependencyGraph(
+            String pluginId,
+            BiFunction<PluginDependencyGraph, String, List<String>> query
+    ) {
+        PluginDependencyGraph graph = getDependencyGraph();
+        if (graph.contains(pluginId) || !getPlugin(pluginId).isPresent()) {
+            List<String> ids = query.apply(graph, pluginId);
+            List<P> plugins = resolvePlugins(ids);
+            if (plugins.size() == ids.size()) return plugins;
+        }
+
+        reseedDependencyGraph();
+        return resolvePlugins(query.apply(getDependencyGraph(), pluginId));
+    }
+
+    /**
+     * Updates the dependency graph after the given plugin was loaded.
+     */
+    public synchronized void handlePluginLoaded(P plugin) {
+        D description = getLoadedPluginDescription(plugin);
+        getDependencyGraph().add(description.getId(), description.getDependencies());
+    }
+
+    /**
+     * Updates the dependency graph after the given plugin was unloaded.
+     */
+    public synchronized void handlePluginUnloaded(P plugin) {
+        fingerprints.remove(getPluginId(plugin));
+        getDependencyGraph().remove(getPluginId(plugin));
+    }
+
+    @Override
+    public List<P> getPluginsDependingOn(String pluginId) {
+        return queryDependencyGraph(pluginId, PluginDependencyGraph::getDependents);
+    }
+
+    @Override
+    public Optional<File> getPluginFile(String pluginId) {
+        return getDescriptionIndex().getPluginFile(pluginId, this::getPluginJars);
+    }
+
+    @Override
+    public Optional<D> getPluginDescription(String pluginId) throws InvalidPluginDescriptionException {
+        Optional<File> fileOptional = getPluginFile(pluginId);
+        if (!fileOptional.isPresent()) return Optional.empty();
+        return getDescriptionIndex().getPluginDescription(fileOptional.get());
+    }
+
     /**
      * Loads the given plugin by their jar file.
      */
@@ -39,26 +276,94 @@ public abstract class AbstractPluginManager<P, D extends ServerUtilsPluginDescri
      * Loads a list of files as plugins.
      */
     public PluginResults<P> loadPlugins(List<File> files) {
+        return loadPreparedPlugins(preparePlugins(files));
+    }
+
+    /**
+     * Loads a list of files as plugins, preparing them asynchronously and only committing them on the main thread.
+     * The returned future completes on the main thread.
+     */
+    public CompletableFuture<PluginResults<P>> loadPluginsAsync(List<File> files) {
+        AbstractTaskManager<?> taskManager = ServerUtilsApp.getPlugin().getTaskManager();
+        return taskManager.supplyTaskAsynchronously(() -> preparePlugins(files))
+                .thenCompose(prepared -> queueOperation(
+                        () -> CompletableFuture.completedFuture(loadPreparedPlugins(prepared))
+                ));
+    }
+
+    /**
+     * Loads and enables a list of files as plugins in a single batch, such that the work after the plugins changed
+     * (e.g. syncing commands) is only done once. Files which aren't valid plugins are skipped, and the plugins which
+     * loaded are enabled even if others failed to load. The files are prepared asynchronously, and the returned
+     * future completes on the main thread, with the results of the skipped, enabled and failed plugins.
+     */
+    public CompletableFuture<PluginResults<P>> loadAndEnablePluginsAsync(List<File> files) {
+        AbstractTaskManager<?> taskManager = ServerUtilsApp.getPlugin().getTaskManager();
+        PluginResults<P> results = new PluginResults<>();
+        return taskManager.supplyTaskAsynchronously(() -> preparePlugins(files, results))
+                .thenCompose(prepared -> queueOperation(() -> {
+                    if (prepared.isSuccess() && prepared.getDescriptions().isEmpty()) {
+                        return CompletableFuture.completedFuture(results);
+                    }
+
+                    beginBatch();
+                    try {
+                        PluginResults<P> loadResults = loadPreparedPlugins(prepared);
+
+                        // Plugins which loaded must be enabled as well, as they wouldn't be loaded again
+                        List<P> loadedPlugins = new ArrayList<>();
+                        for (PluginResult<P> loadResult : loadResults) {
+                            if (loadResult.isSuccess()) loadedPlugins.add(loadResult.getPlugin());
+                        }
+                        if (!loadedPlugins.isEmpty()) {
+                            enablePlugins(loadedPlugins).forEach(results::addResult);
+                        }
+
+                        if (!loadResults.isSuccess()) results.addResult(loadResults.last());
+                        return CompletableFuture.completedFuture(results);
+                    } finally {
+                        endBatch();
+                    }
+                }));
+    }
+
+    /**
+     * Prepares a list of files to be loaded as plugins: parses their descriptions, verifies their jars, determines
+     * their load order and reads the jars into the page cache. This does not touch the server's state, and thus is
+     * safe to call off the main thread.
+     */
+    public PreparedPlugins<P, D> preparePlugins(List<File> files) {
+        return preparePlugins(files, null);
+    }
+
+    /**
+     * Prepares a list of files to be loaded as plugins, see {@link #preparePlugins(List)}. If skippedResults are
+     * given, files which aren't valid plugins are left out and reported to them, instead of failing the preparation.
+     */
+    public PreparedPlugins<P, D> preparePlugins(List<File> files, PluginResults<P> skippedResults) {
         List<D> descriptions = new ArrayList<>(files.size());
+        Map<File, PluginDescriptionScanner.ScanResult<D>> scanResults = getDescriptionScanner().scan(files);
 
         for (File file : files) {
-            D description;
+            Result result;
             try {
-                Optional<D> descriptionOptional = getPluginDescription(file);
+                Optional<D> descriptionOptional = scanResults.get(file).getDescription();
                 if (!descriptionOptional.isPresent()) {
-                    return new PluginResults<P>().addResult(file.getName(), Result.NOT_EXISTS);
+                    result = Result.NOT_EXISTS;
+                } else if (!verifyPluginFile(descriptionOptional.get())) {
+                    result = Result.INVALID_PLUGIN;
+                } else {
+                    descriptions.add(descriptionOptional.get());
+                    continue;
                 }
-
-                description = descriptionOptional.get();
             } catch (InvalidPluginDescriptionException ex) {
-                return new PluginResults<P>().addResult(file.getName(), Result.INVALID_DESCRIPTION);
+                result = Result.INVALID_DESCRIPTION;
             }
 
-            if (getPlugin(description.getId()).isPresent()) {
-                return new PluginResults<P>().addResult(description.getId(), Result.ALREADY_LOADED);
+            if (skippedResults == null) {
+                return PreparedPlugins.failure(new PluginResults<P>().addResult(file.getName(), result));
             }
-
-            descriptions.add(description);
+            skippedResults.addResult(file.getName(), result);
         }
 
         List<D> orderedDescriptions;
@@ -72,14 +377,153 @@ public abstract class AbstractPluginManager<P, D extends ServerUtilsPluginDescri
                 sb.append(", ").append(file.getName());
             }
 
-            return new PluginResults<P>().addResult(sb.substring(2), Result.ERROR);
+            return PreparedPlugins.failure(new PluginResults<P>().addResult(sb.substring(2), Result.ERROR));
+        }
+
+        List<PluginFingerprints.Fingerprint> observedFingerprints = new ArrayList<>(orderedDescriptions.size());
+        for (D description : orderedDescriptions) {
+            observedFingerprints.add(PluginFingerprints.observe(description.getFile()));
         }
 
-        return loadPluginDescriptions(orderedDescriptions);
+        if (isShadowCopyEnabled()) {
+            try {
+                orderedDescriptions = copyToJarCache(orderedDescriptions);
+            } catch (IOException | InvalidPluginDescriptionException ex) {
+                ex.printStackTrace();
+                return PreparedPlugins.failure(new PluginResults<P>().addResult(
+                        String.join(", ", getDescriptionIds(orderedDescriptions)),
+                        Result.ERROR
+                ));
+            }
+        }
+
+        // Copies are named after their hash, so only jars loaded from the plugins folder need to be hashed
+        for (int i = 0; i < orderedDescriptions.size(); i++) {
+            File file = orderedDescriptions.get(i).getFile();
+            PluginFingerprints.Fingerprint fingerprint = observedFingerprints.get(i);
+            if (fingerprint == null) continue;
+
+            String hash = getJarCache().contains(file) ? getJarCache().getHash(file) : FileUtils.getHash(file.toPath());
+            fingerprints.prepare(file, fingerprint.withHash(hash));
+        }
+
+        preloadPluginFiles(orderedDescriptions);
+        return PreparedPlugins.success(orderedDescriptions);
+    }
+
+    /**
+     * Copies the jars of the given descriptions into the {@link PluginJarCache}.
+     * @return The descriptions of the copies, in the same order.
+     */
+    private List<D> copyToJarCache(List<D> descriptions) throws IOException {
+        List<D> copiedDescriptions = new ArrayList<>(descriptions.size());
+        try {
+            for (D description : descriptions) {
+                File copy = getJarCache().copy(description.getFile());
+                Optional<D> copiedDescription = getPluginDescription(copy);
+                if (!copiedDescription.isPresent() || !copiedDescription.get().getId().equals(description.getId())) {
+                    getJarCache().release(copy);
+                    throw new InvalidPluginDescriptionException("Copy of " + description.getFile() + " is invalid");
+                }
+                copiedDescriptions.add(copiedDescription.get());
+            }
+        } catch (IOException | RuntimeException ex) {
+            // None of the copies will be loaded, so the ones made already must not stay protected either
+            for (D copiedDescription : copiedDescriptions) {
+                getJarCache().release(copiedDescription.getFile());
+            }
+            throw ex;
+        }
+        return copiedDescriptions;
+    }
+
+    /**
+     * Verifies that the jar of the given description was written completely and contains its main class, such that
+     * a half-uploaded jar is rejected before any plugin is torn down for it.
+     */
+    protected boolean verifyPluginFile(D description) {
+        String main = description.getMain();
+        String[] entries = main == null ? new String[0] : new String[] { main.replace('.', '/') + ".class" };
+        try {
+            return JarUtils.verify(description.getFile(), entries);
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Loads plugins which were prepared by {@link #preparePlugins(List)}.
+     * This mutates the server's state, and thus must be called on the main thread.
+     */
+    public PluginResults<P> loadPreparedPlugins(PreparedPlugins<P, D> prepared) {
+        if (!prepared.isSuccess()) return prepared.getFailure();
+        return loadPreparedDescriptions(prepared.getDescriptions(), prepared.getDescriptions());
+    }
+
+    /**
+     * Loads the given prepared descriptions, which are (part of) the given batch of prepared descriptions, and
+     * releases them afterwards.
+     */
+    private PluginResults<P> loadPreparedDescriptions(List<D> descriptions, List<D> batchDescriptions) {
+        try {
+            for (D description : descriptions) {
+                if (getPlugin(description.getId()).isPresent()) {
+                    return new PluginResults<P>().addResult(description.getId(), Result.ALREADY_LOADED);
+                }
+            }
+
+            return commitLoad(descriptions, () -> loadPluginDescriptions(descriptions, batchDescriptions));
+        } finally {
+            releasePrepared(descriptions);
+        }
+    }
+
+    /**
+     * Loads the given prepared descriptions through the given loader, and records the descriptions and fingerprints
+     * of the jars the plugins were loaded from.
+     */
+    private PluginResults<P> commitLoad(List<D> descriptions, Supplier<PluginResults<P>> loader) {
+        Map<String, File> files = new HashMap<>();
+        for (D description : descriptions) {
+            if (!getJarCache().contains(description.getFile())) getDescriptionIndex().put(description);
+            files.put(description.getId(), description.getFile());
+        }
+
+        PluginResults<P> loadResults = loader.get();
+        for (PluginResult<P> loadResult : loadResults) {
+            File file = files.get(loadResult.getPluginId());
+            if (loadResult.isSuccess() && file != null) fingerprints.commit(loadResult.getPluginId(), file);
+        }
+        return loadResults;
+    }
+
+    /**
+     * Releases the jar copies and fingerprints of the given prepared plugins, which must be called if they are not
+     * going to be loaded (anymore), such that the copies can be garbage collected. Plugins which have been loaded
+     * already have been released already, so releasing them again has no effect.
+     */
+    public void releasePreparedPlugins(PreparedPlugins<P, D> prepared) {
+        releasePrepared(prepared.getDescriptions());
+    }
+
+    private void releasePrepared(List<D> descriptions) {
+        for (D description : descriptions) {
+            getJarCache().release(description.getFile());
+            fingerprints.discard(description.getFile());
+        }
     }
 
     protected abstract PluginResults<P> loadPluginDescriptions(List<D> descriptions);
 
+    /**
+     * Loads the given descriptions, which are part of a batch whose descriptions are loaded over several steps.
+     * Dependencies on plugins of the batch must be considered satisfied, as those may not be registered with the
+     * server yet (e.g. because they have been loaded, but not enabled yet).
+     */
+    protected PluginResults<P> loadPluginDescriptions(List<D> descriptions, List<D> batchDescriptions) {
+        return loadPluginDescriptions(descriptions);
+    }
+
     /**
      * Enables the given plugin by name.
      */
@@ -185,33 +629,189 @@ public abstract class AbstractPluginManager<P, D extends ServerUtilsPluginDescri
      * Reloads the given plugins.
      */
     public PluginResults<P> reloadPlugins(List<P> plugins) {
-        PluginResults<P> disableResults = disablePlugins(plugins);
-        for (PluginResult<P> disableResult : disableResults.getResults()) {
-            if (!disableResult.isSuccess() && disableResult.getResult() != Result.ALREADY_DISABLED) {
-                return disableResults;
+        return reloadPreparedPlugins(plugins, prepareReload(getPluginIds(plugins)));
+    }
+
+    /**
+     * Reloads the given plugins, preparing their new jars asynchronously and only committing the reload on the
+     * main thread, within the reload budget. The returned future completes on the main thread.
+     */
+    public CompletableFuture<PluginResults<P>> reloadPluginsAsync(List<P> plugins) {
+        if (isHotSwapEnabled() && canHotSwap(plugins)) return hotSwapPluginsAsync(plugins);
+
+        AbstractTaskManager<?> taskManager = ServerUtilsApp.getPlugin().getTaskManager();
+        List<String> pluginIds = getPluginIds(plugins);
+        return taskManager.supplyTaskAsynchronously(() -> prepareReload(pluginIds))
+                .thenCompose(prepared -> reloadPreparedPluginsBudgeted(plugins, prepared));
+    }
+
+    /**
+     * Whether plugins should be reloaded by hot swapping them (see {@link #hotSwapPluginsAsync(List)}).
+     */
+    public boolean isHotSwapEnabled() {
+        return this instanceof HotSwapCapable
+                && ServerUtilsApp.getPlugin().getConfigResource().getConfig().getBoolean("hot-swap.enabled");
+    }
+
+    /**
+     * Checks whether the given plugins can be hot swapped. While staged, the new versions of plugins resolve the
+     * classes of their dependencies from the old versions, so none of the plugins may depend on another one.
+     */
+    public boolean canHotSwap(List<P> plugins) {
+        Set<String> pluginIds = new HashSet<>(getPluginIds(plugins));
+        for (String pluginId : pluginIds) {
+            for (P dependency : queryDependencyGraph(pluginId, PluginDependencyGraph::getTransitiveDependencies)) {
+                if (pluginIds.contains(getPluginId(dependency))) return false;
             }
         }
+        return true;
+    }
 
-        List<String> pluginIds = new ArrayList<>(plugins.size());
-        for (P plugin : plugins) {
-            pluginIds.add(getPluginId(plugin));
+    /**
+     * Reloads the given plugins by hot swapping them: their new jars are prepared, and their new versions are
+     * staged (classloaders created and classes loaded) off the main thread while the old versions keep running.
+     * The old versions are then disabled and unloaded, and the new versions enabled, on the main thread, such that
+     * the plugins are only unavailable during that switch. Falls back to a regular reload if the platform doesn't
+     * support hot swapping. The returned future completes on the main thread.
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<PluginResults<P>> hotSwapPluginsAsync(List<P> plugins) {
+        if (!(this instanceof HotSwapCapable)) return reloadPluginsAsync(plugins);
+        HotSwapCapable<P, D> hotSwapper = (HotSwapCapable<P, D>) this;
+
+        AbstractTaskManager<?> taskManager = ServerUtilsApp.getPlugin().getTaskManager();
+        List<String> pluginIds = getPluginIds(plugins);
+        return taskManager.supplyTaskAsynchronously(() -> {
+            PreparedPlugins<P, D> prepared = prepareReload(pluginIds);
+            if (!prepared.isSuccess()) return new StagedSwap<>(prepared, prepared.getFailure());
+
+            try {
+                return new StagedSwap<>(prepared, hotSwapper.stagePluginDescriptions(prepared.getDescriptions()));
+            } catch (RuntimeException ex) {
+                releasePreparedPlugins(prepared);
+                throw ex;
+            }
+        }).thenCompose(swap -> queueOperation(() -> CompletableFuture.completedFuture(
+                swapStagedPlugins(hotSwapper, resolvePlugins(pluginIds), swap)
+        )));
+    }
+
+    private PluginResults<P> swapStagedPlugins(
+            HotSwapCapable<P, D> hotSwapper,
+            List<P> plugins,
+            StagedSwap<P, D> swap
+    ) {
+        List<D> descriptions = swap.prepared.getDescriptions();
+        try {
+            if (!swap.staged.isSuccess()) {
+                discardStagedPlugins(hotSwapper, swap.staged);
+                return swap.staged;
+            }
+
+            long start = System.nanoTime();
+            PluginResults<P> disableResults = disablePlugins(plugins);
+            for (PluginResult<P> disableResult : disableResults.getResults()) {
+                if (!disableResult.isSuccess() && disableResult.getResult() != Result.ALREADY_DISABLED) {
+                    discardStagedPlugins(hotSwapper, swap.staged);
+                    return disableResults;
+                }
+            }
+
+            CloseablePluginResults<P> unloadResults = unloadPlugins(plugins);
+            if (!unloadResults.isSuccess()) {
+                discardStagedPlugins(hotSwapper, swap.staged);
+                return unloadResults;
+            }
+            unloadResults.tryClose();
+            collectJarGarbage();
+
+            List<P> stagedPlugins = swap.staged.getPlugins();
+            PluginResults<P> loadResults = commitLoad(
+                    descriptions,
+                    () -> hotSwapper.commitStagedPlugins(stagedPlugins)
+            );
+            if (!loadResults.isSuccess()) return loadResults;
+
+            PluginResults<P> enableResults = enablePlugins(loadResults.getPlugins());
+            ServerUtilsApp.getPlugin().getLogger().info(String.format(
+                    "Hot swapped %s, which were unavailable for %d ms",
+                    String.join(", ", getDescriptionIds(descriptions)),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+            ));
+            return enableResults;
+        } finally {
+            releasePrepared(descriptions);
         }
+    }
 
-        CloseablePluginResults<P> unloadResults = unloadPlugins(plugins);
-        if (!unloadResults.isSuccess()) return unloadResults;
-        unloadResults.tryClose();
+    private void discardStagedPlugins(HotSwapCapable<P, D> hotSwapper, PluginResults<P> staged) {
+        List<P> plugins = new ArrayList<>();
+        for (PluginResult<P> result : staged) {
+            if (result.isSuccess()) plugins.add(result.getPlugin());
+        }
+        if (!plugins.isEmpty()) hotSwapper.discardStagedPlugins(plugins);
+    }
 
-        List<File> pluginFiles = new ArrayList<>(plugins.size());
+    /**
+     * Prepares the jars of the given plugin ids to be loaded again, which is safe to call off the main thread.
+     * The preparation fails if any jar is incomplete or no longer contains the plugin, such that the plugins are
+     * only torn down once all of their new jars passed.
+     */
+    public PreparedPlugins<P, D> prepareReload(List<String> pluginIds) {
+        List<File> pluginFiles = new ArrayList<>(pluginIds.size());
         for (String pluginId : pluginIds) {
             Optional<File> pluginFile = getPluginFile(pluginId);
-            if (!pluginFile.isPresent()) return new PluginResults<P>().addResult(pluginId, Result.FILE_DELETED);
+            if (!pluginFile.isPresent()) {
+                return PreparedPlugins.failure(new PluginResults<P>().addResult(pluginId, Result.FILE_DELETED));
+            }
             pluginFiles.add(pluginFile.get());
         }
 
-        PluginResults<P> loadResults = loadPlugins(pluginFiles);
+        PreparedPlugins<P, D> prepared = preparePlugins(pluginFiles);
+        if (!prepared.isSuccess()) return prepared;
+
+        // The jar may have been replaced since it was indexed, so its plugin must still be the one being reloaded
+        Set<String> preparedIds = new HashSet<>();
+        for (D description : prepared.getDescriptions()) {
+            preparedIds.add(description.getId());
+        }
+        for (String pluginId : pluginIds) {
+            if (!preparedIds.contains(pluginId)) {
+                releasePreparedPlugins(prepared);
+                return PreparedPlugins.failure(new PluginResults<P>().addResult(pluginId, Result.INVALID_PLUGIN));
+            }
+        }
+        return prepared;
+    }
+
+    /**
+     * Reloads the given plugins from their prepared jars, which must be called on the main thread.
+     * If the preparation failed, the plugins are left untouched.
+     */
+    public PluginResults<P> reloadPreparedPlugins(List<P> plugins, PreparedPlugins<P, D> prepared) {
+        if (!prepared.isSuccess()) return prepared.getFailure();
+
+        PluginResults<P> loadResults;
+        try {
+            PluginResults<P> disableResults = disablePlugins(plugins);
+            for (PluginResult<P> disableResult : disableResults.getResults()) {
+                if (!disableResult.isSuccess() && disableResult.getResult() != Result.ALREADY_DISABLED) {
+                    return disableResults;
+                }
+            }
+
+            CloseablePluginResults<P> unloadResults = unloadPlugins(plugins);
+            if (!unloadResults.isSuccess()) return unloadResults;
+            unloadResults.tryClose();
+            collectJarGarbage();
+
+            loadResults = loadPreparedPlugins(prepared);
+        } finally {
+            releasePreparedPlugins(prepared);
+        }
         if (!loadResults.isSuccess()) return loadResults;
 
-        List<P> loadedPlugins = new ArrayList<>(pluginIds.size());
+        List<P> loadedPlugins = new ArrayList<>(loadResults.getResults().size());
         for (PluginResult<P> loadResult : loadResults) {
             loadedPlugins.add(loadResult.getPlugin());
         }
@@ -219,6 +819,187 @@ public abstract class AbstractPluginManager<P, D extends ServerUtilsPluginDescri
         return enablePlugins(loadedPlugins);
     }
 
+    /**
+     * Reloads the given plugins from their prepared jars, one plugin (or load wave) per step, with the steps spread
+     * over ticks within the reload budget (see {@link AbstractTaskManager#runBudgetedTask(List, long)}).
+     * The reload is queued behind running operations (see {@link #queueOperation(Supplier)}), after which the
+     * plugins are looked up again by id. All steps run on the main thread, and the returned future completes on the
+     * main thread.
+     */
+    public CompletableFuture<PluginResults<P>> reloadPreparedPluginsBudgeted(
+            List<P> plugins,
+            PreparedPlugins<P, D> prepared
+    ) {
+        if (!prepared.isSuccess()) return CompletableFuture.completedFuture(prepared.getFailure());
+
+        List<String> pluginIds = getPluginIds(plugins);
+        return queueOperation(() -> runReloadBatch(resolvePlugins(pluginIds), prepared));
+    }
+
+    private CompletableFuture<PluginResults<P>> runReloadBatch(List<P> plugins, PreparedPlugins<P, D> prepared) {
+        PluginBatch<P> batch = new PluginBatch<>();
+        batch.cleanup = () -> releasePreparedPlugins(prepared);
+        if (!addDisableAndUnloadSteps(batch, plugins)) {
+            batch.cleanup.run();
+            return CompletableFuture.completedFuture(batch.failure);
+        }
+
+        // Plugins of a wave only depend on plugins of earlier waves, which have been loaded in earlier steps
+        List<D> descriptions = prepared.getDescriptions();
+        List<P> loadedPlugins = new ArrayList<>(descriptions.size());
+        for (List<D> wave : determineLoadWaves(descriptions)) {
+            batch.add(
+                    () -> loadPreparedDescriptions(wave, descriptions),
+                    loadResults -> loadedPlugins.addAll(loadResults.getPlugins())
+            );
+        }
+
+        PluginResults<P> enableResults = new PluginResults<>();
+        for (int i = 0; i < prepared.getDescriptions().size(); i++) {
+            int index = i;
+            batch.add(
+                    () -> enablePlugins(Collections.singletonList(loadedPlugins.get(index))),
+                    results -> results.forEach(enableResults::addResult)
+            );
+        }
+
+        return runBatch(batch, enableResults);
+    }
+
+    /**
+     * Disables and unloads the given plugins, one plugin per step, with the steps spread over ticks within the
+     * reload budget (see {@link AbstractTaskManager#runBudgetedTask(List, long)}). Plugins which are disabled
+     * already are only unloaded. The unload is queued behind running operations, like
+     * {@link #reloadPreparedPluginsBudgeted(List, PreparedPlugins)}. All steps run on the main thread, and the
+     * returned future completes on the main thread with the (already closed) unload results.
+     */
+    public CompletableFuture<PluginResults<P>> unloadPluginsBudgeted(List<P> plugins) {
+        List<String> pluginIds = getPluginIds(plugins);
+        return queueOperation(() -> {
+            PluginBatch<P> batch = new PluginBatch<>();
+            if (!addDisableAndUnloadSteps(batch, resolvePlugins(pluginIds))) {
+                return CompletableFuture.completedFuture(batch.failure);
+            }
+            return runBatch(batch, batch.unloadResults);
+        });
+    }
+
+    /**
+     * Queues a plugin operation which may be spread over ticks, such that it only starts (on the main thread) once
+     * all operations queued before it have stopped. Otherwise the steps of concurrent operations could interleave,
+     * e.g. one reload unloading the plugins which another reload is about to enable.
+     * @return A future which completes with the result of the operation, on the main thread.
+     */
+    public synchronized <R> CompletableFuture<R> queueOperation(Supplier<CompletableFuture<R>> operation) {
+        AbstractTaskManager<?> taskManager = ServerUtilsApp.getPlugin().getTaskManager();
+        CompletableFuture<R> future = lastOperation
+                .handle((result, th) -> null)
+                .thenCompose(ignored -> taskManager.supplyTask(operation))
+                .thenCompose(Function.identity());
+        lastOperation = future;
+        return future;
+    }
+
+    private boolean addDisableAndUnloadSteps(PluginBatch<P> batch, List<P> plugins) {
+        List<P> orderedPlugins;
+        try {
+            orderedPlugins = determineLoadOrder(plugins);
+        } catch (IllegalStateException ex) {
+            ex.printStackTrace();
+            batch.failure = new PluginResults<P>().addResult(String.join(", ", getPluginIds(plugins)), Result.ERROR);
+            return false;
+        }
+        Collections.reverse(orderedPlugins);
+
+        for (P plugin : orderedPlugins) {
+            batch.add(() -> {
+                if (!isPluginEnabled(plugin)) return new PluginResults<>();
+                return disableOrderedPlugins(Collections.singletonList(plugin));
+            }, results -> { });
+        }
+
+        for (P plugin : orderedPlugins) {
+            batch.add(
+                    () -> unloadOrderedPlugins(Collections.singletonList(plugin)),
+                    results -> results.forEach(batch.unloadResults::addResult)
+            );
+        }
+
+        batch.add(() -> {
+            batch.unloadResults.tryClose();
+            collectJarGarbage();
+            return batch.unloadResults;
+        }, results -> { });
+        return true;
+    }
+
+    private CompletableFuture<PluginResults<P>> runBatch(PluginBatch<P> batch, PluginResults<P> results) {
+        List<BooleanSupplier> steps = new ArrayList<>(batch.steps.size() + 1);
+        steps.add(() -> {
+            beginBatch();
+            return true;
+        });
+        steps.addAll(batch.steps);
+
+        return ServerUtilsApp.getPlugin().getTaskManager()
+                .runBudgetedTask(steps, getReloadBudget())
+                .whenComplete((ignored, th) -> {
+                    try {
+                        endBatch();
+                    } finally {
+                        batch.cleanup.run();
+                    }
+                })
+                .thenApply(ignored -> batch.failure == null ? results : batch.failure);
+    }
+
+    /**
+     * Called on the main thread before the first step of a batch operation, which is followed by a call to
+     * {@link #endBatch()} after the batch stopped. Implementations may use this to defer work which would otherwise
+     * be repeated after every single step.
+     */
+    protected void beginBatch() {
+
+    }
+
+    protected void endBatch() {
+
+    }
+
+    /**
+     * Retrieves the time budget per tick for batch operations in milliseconds.
+     */
+    protected long getReloadBudget() {
+        return ServerUtilsApp.getPlugin().getConfigResource().getConfig().getInt("reload-budget.millis-per-tick");
+    }
+
+    private List<String> getDescriptionIds(List<D> descriptions) {
+        List<String> descriptionIds = new ArrayList<>(descriptions.size());
+        for (D description : descriptions) {
+            descriptionIds.add(description.getId());
+        }
+        return descriptionIds;
+    }
+
+    /**
+     * Looks up the currently loaded plugins of the given ids, leaving out ids which are not loaded (anymore).
+     */
+    private List<P> resolvePlugins(List<String> pluginIds) {
+        List<P> plugins = new ArrayList<>(pluginIds.size());
+        for (String pluginId : pluginIds) {
+            getPlugin(pluginId).ifPresent(plugins::add);
+        }
+        return plugins;
+    }
+
+    private List<String> getPluginIds(List<P> plugins) {
+        List<String> pluginIds = new ArrayList<>(plugins.size());
+        for (P plugin : plugins) {
+            pluginIds.add(getPluginId(plugin));
+        }
+        return pluginIds;
+    }
+
     /**
      * Unloads the given plugin by name.
      */
@@ -277,6 +1058,32 @@ public abstract class AbstractPluginManager<P, D extends ServerUtilsPluginDescri
      * @throws IllegalStateException Iff circular dependency
      */
     public List<D> determineLoadOrder(Collection<? extends D> descriptions) throws IllegalStateException {
+        return DependencyUtils.determineOrder(createDependencyMap(descriptions));
+    }
+
+    /**
+     * Determines the load waves for a given collection of descriptions.
+     * The plugins within a wave don't depend on each other, but only on plugins of earlier waves, such that the
+     * thread-safe parts of loading the plugins of a single wave may run in parallel.
+     * @throws IllegalStateException Iff circular dependency
+     */
+    public List<List<D>> determineLoadWaves(Collection<? extends D> descriptions) throws IllegalStateException {
+        return DependencyUtils.determineLayers(createDependencyMap(descriptions));
+    }
+
+    /**
+     * Reads the files of the given descriptions in parallel, such that loading them afterwards (which often has to
+     * happen serially) hits the OS page cache instead of the disk.
+     */
+    protected void preloadPluginFiles(Collection<? extends D> descriptions) {
+        List<Path> paths = new ArrayList<>(descriptions.size());
+        for (D description : descriptions) {
+            paths.add(description.getFile().toPath());
+        }
+        ParallelUtils.map(paths, FileUtils::preload);
+    }
+
+    private Map<D, Set<D>> createDependencyMap(Collection<? extends D> descriptions) {
         Map<String, D> pluginIdToDescriptionMap = new HashMap<>();
         for (D description : descriptions) {
             pluginIdToDescriptionMap.put(description.getId(), description);
@@ -296,7 +1103,47 @@ public abstract class AbstractPluginManager<P, D extends ServerUtilsPluginDescri
 
             dependencyMap.put(description, dependencies);
         }
+        return dependencyMap;
+    }
 
-        return DependencyUtils.determineOrder(dependencyMap);
+    /**
+     * The prepared jars and staged plugins of a hot swap.
+     */
+    private static final class StagedSwap<P, D extends ServerUtilsPluginDescription> {
+
+        private final PreparedPlugins<P, D> prepared;
+        private final PluginResults<P> staged;
+
+        private StagedSwap(PreparedPlugins<P, D> prepared, PluginResults<P> staged) {
+            this.prepared = prepared;
+            this.staged = staged;
+        }
+    }
+
+    /**
+     * The steps of a budgeted batch operation, which stops at the first step with unsuccessful results.
+     */
+    private static final class PluginBatch<P> {
+
+        private final List<BooleanSupplier> steps = new ArrayList<>();
+        private final CloseablePluginResults<P> unloadResults = new CloseablePluginResults<>();
+        private PluginResults<P> failure = null;
+
+        /**
+         * Runs after the batch stopped, whether it completed or not, e.g. to release what its steps didn't use.
+         */
+        private Runnable cleanup = () -> { };
+
+        private void add(Supplier<PluginResults<P>> step, Consumer<PluginResults<P>> onSuccess) {
+            steps.add(() -> {
+                PluginResults<P> results = step.get();
+                if (!results.isSuccess()) {
+                    failure = results;
+                    return false;
+                }
+                onSuccess.accept(results);
+                return true;
+            });
+        }
     }
 }
@@ -3,9 +3,14 @@ package net.frankheijden.serverutils.common.managers;
 import net.frankheijden.serverutils.common.entities.AbstractTask;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public abstract class AbstractTaskManager<T> {
 
@@ -71,8 +76,56 @@ public abstract class AbstractTaskManager<T> {
         return task;
     }
 
+    /**
+     * Supplies a value from a synchronous task.
+     *
+     * @param supplier The supplier, which is invoked on the main thread.
+     * @return A future which completes with the supplied value, on the main thread.
+     */
+    public <R> CompletableFuture<R> supplyTask(Supplier<R> supplier) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        runTask(() -> complete(future, supplier));
+        return future;
+    }
+
+    /**
+     * Supplies a value from an asynchronous task.
+     *
+     * @param supplier The supplier, which is invoked asynchronously.
+     * @return A future which completes with the supplied value.
+     */
+    public <R> CompletableFuture<R> supplyTaskAsynchronously(Supplier<R> supplier) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        runTaskAsynchronously(() -> complete(future, supplier));
+        return future;
+    }
+
+    /**
+     * Runs the steps of a batch operation in order on the main thread, spreading them over as many ticks as needed
+     * to keep the time spent per tick within the given budget. At least one step runs per tick.
+     *
+     * @param steps        The steps, of which one returning false stops the batch.
+     * @param budgetMillis The budget per tick in milliseconds, a non-positive budget runs all steps at once.
+     * @return A future which completes on the main thread after the batch stopped.
+     */
+    public CompletableFuture<Void> runBudgetedTask(List<BooleanSupplier> steps, long budgetMillis) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        runTask(new BudgetedTask(steps.iterator(), TimeUnit.MILLISECONDS.toNanos(budgetMillis), future));
+        return future;
+    }
+
+    private static <R> void complete(CompletableFuture<R> future, Supplier<R> supplier) {
+        try {
+            future.complete(supplier.get());
+        } catch (Throwable th) {
+            future.completeExceptionally(th);
+        }
+    }
+
     private T addTask(T task) {
-        serverTasks.add(task);
+        synchronized (serverTasks) {
+            serverTasks.add(task);
+        }
         return task;
     }
 
@@ -100,10 +153,43 @@ public abstract class AbstractTaskManager<T> {
         }
         tasks.clear();
 
-        for (T task : serverTasks) {
-            taskCloser.accept(task);
+        synchronized (serverTasks) {
+            for (T task : serverTasks) {
+                taskCloser.accept(task);
+            }
+            serverTasks.clear();
+        }
+    }
+
+    private final class BudgetedTask implements Runnable {
+        private final Iterator<BooleanSupplier> steps;
+        private final long budgetNanos;
+        private final CompletableFuture<Void> future;
+
+        private BudgetedTask(Iterator<BooleanSupplier> steps, long budgetNanos, CompletableFuture<Void> future) {
+            this.steps = steps;
+            this.budgetNanos = budgetNanos;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            long deadline = System.nanoTime() + budgetNanos;
+            try {
+                while (steps.hasNext()) {
+                    if (!steps.next().getAsBoolean()) break;
+
+                    if (budgetNanos > 0 && steps.hasNext() && System.nanoTime() - deadline >= 0) {
+                        runTaskLater(this, 1);
+                        return;
+                    }
+                }
+            } catch (Throwable th) {
+                future.completeExceptionally(th);
+                return;
+            }
+            future.complete(null);
         }
-        serverTasks.clear();
     }
 
     private final class RunningTask {
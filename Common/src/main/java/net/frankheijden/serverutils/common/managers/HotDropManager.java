@@ -0,0 +1,208 @@
+package net.frankheijden.serverutils.common.managers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import net.frankheijden.serverutils.common.config.MessageKey;
+import net.frankheijden.serverutils.common.entities.ServerUtilsAudience;
+import net.frankheijden.serverutils.common.entities.ServerUtilsPlugin;
+import net.frankheijden.serverutils.common.entities.ServerUtilsPluginDescription;
+import net.frankheijden.serverutils.common.entities.exceptions.InvalidPluginDescriptionException;
+import net.frankheijden.serverutils.common.entities.results.PluginResult;
+import net.frankheijden.serverutils.common.entities.results.PluginResults;
+import net.frankheijden.serverutils.common.entities.results.Result;
+
+/**
+ * Loads and enables jars which are dropped into the plugins folder. Jars are collected until none of them changed
+ * for the configured settle window, after which all new plugins among them are loaded and enabled in one batch.
+ * Jars of plugins which are loaded already (e.g. overwritten jars) are left to the plugin watcher.
+ */
+public class HotDropManager<P, T> implements Consumer<Path> {
+
+    private static final String JAR_EXTENSION = ".jar";
+
+    private final ServerUtilsPlugin<P, T, ?, ?, ?> plugin;
+    private final Map<Path, FileState> pending;
+    private volatile T task = null;
+    private volatile boolean cancelled = false;
+
+    public HotDropManager(ServerUtilsPlugin<P, T, ?, ?, ?> plugin) {
+        this.plugin = plugin;
+        this.pending = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Handles a changed file in the plugins folder, (re)starting the settle window if it's a jar.
+     */
+    @Override
+    public void accept(Path path) {
+        if (cancelled || !path.getFileName().toString().endsWith(JAR_EXTENSION)) return;
+
+        FileState state = FileState.of(path);
+        if (state == null) {
+            pending.remove(path);
+            return;
+        }
+
+        pending.put(path, state);
+        scheduleSettleCheck();
+    }
+
+    private synchronized void scheduleSettleCheck() {
+        T previousTask = task;
+        if (previousTask != null) {
+            plugin.getTaskManager().cancelTask(previousTask);
+        }
+
+        int settleTicks = plugin.getConfigResource().getConfig().getInt("hot-drop.settle-ticks");
+        task = plugin.getTaskManager().runTaskLater(this::checkSettled, Math.max(1, settleTicks));
+    }
+
+    /**
+     * Checks whether none of the pending jars changed during the settle window, i.e. whether they have all been
+     * written completely, and deploys them if so.
+     */
+    private void checkSettled() {
+        if (cancelled) return;
+
+        Map<Path, FileState> settled = new HashMap<>();
+        for (Map.Entry<Path, FileState> entry : pending.entrySet()) {
+            Path path = entry.getKey();
+            FileState state = FileState.of(path);
+            if (state == null) {
+                pending.remove(path, entry.getValue());
+            } else if (!state.equals(entry.getValue())) {
+                pending.put(path, state);
+                scheduleSettleCheck();
+                return;
+            } else {
+                settled.put(path, state);
+            }
+        }
+
+        // Jars which changed in the meantime stay pending, and are deployed after the next settle window
+        List<File> files = new ArrayList<>(settled.size());
+        settled.forEach((path, state) -> {
+            if (pending.remove(path, state)) files.add(path.toFile());
+        });
+        if (files.isEmpty()) return;
+
+        plugin.getTaskManager().runTaskAsynchronously(() -> readDescriptions(plugin.getPluginManager(), files));
+    }
+
+    /**
+     * Reads the descriptions of the given jars off the main thread, skipping jars which aren't plugins.
+     */
+    private <D extends ServerUtilsPluginDescription> void readDescriptions(
+            AbstractPluginManager<P, D> pluginManager,
+            List<File> files
+    ) {
+        Map<File, D> descriptions = new HashMap<>();
+        PluginResults<P> invalidResults = new PluginResults<>();
+        for (File file : files) {
+            try {
+                Optional<D> descriptionOptional = pluginManager.getDescriptionIndex().getPluginDescription(file);
+                descriptionOptional.ifPresent(description -> descriptions.put(file, description));
+            } catch (InvalidPluginDescriptionException ex) {
+                invalidResults.addResult(file.getName(), Result.INVALID_DESCRIPTION);
+            }
+        }
+
+        plugin.getTaskManager().runTask(() -> {
+            ServerUtilsAudience<?> console = plugin.getChatProvider().getConsoleServerAudience();
+            for (PluginResult<P> invalidResult : invalidResults) {
+                invalidResult.sendTo(console, null);
+            }
+            deploy(pluginManager, descriptions);
+        });
+    }
+
+    /**
+     * Loads and enables the jars of plugins which aren't loaded yet, in a single batch.
+     */
+    private <D extends ServerUtilsPluginDescription> void deploy(
+            AbstractPluginManager<P, D> pluginManager,
+            Map<File, D> descriptions
+    ) {
+        if (cancelled) return;
+
+        List<File> files = new ArrayList<>(descriptions.size());
+        descriptions.forEach((file, description) -> {
+            if (!pluginManager.getPlugin(description.getId()).isPresent()) files.add(file);
+        });
+        if (files.isEmpty()) return;
+
+        ServerUtilsAudience<?> console = plugin.getChatProvider().getConsoleServerAudience();
+        pluginManager.loadAndEnablePluginsAsync(files).whenComplete((results, th) -> {
+            if (th != null) {
+                plugin.getLogger().log(Level.SEVERE, "Unable to load dropped plugins", th);
+                return;
+            }
+
+            // Some of the plugins may have been deployed even if others failed, so all results are reported
+            for (PluginResult<P> result : results) {
+                result.sendTo(console, MessageKey.LOADPLUGIN);
+            }
+        });
+    }
+
+    /**
+     * Stops deploying jars, including those which are currently settling.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        pending.clear();
+
+        T previousTask = task;
+        if (previousTask != null) {
+            plugin.getTaskManager().cancelTask(previousTask);
+        }
+    }
+
+    private static final class FileState {
+
+        private final long size;
+        private final long lastModified;
+
+        private FileState(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Observes the size and modification time of the file.
+         * @return The observed state, or null if the file doesn't exist (anymore).
+         */
+        private static FileState of(Path path) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return new FileState(attributes.size(), attributes.lastModifiedTime().toMillis());
+            } catch (IOException ex) {
+                return null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof FileState)) return false;
+            FileState other = (FileState) obj;
+            return size == other.size && lastModified == other.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(size) + Long.hashCode(lastModified);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package net.frankheijden.serverutils.common.managers;
+
+import java.util.List;
+import net.frankheijden.serverutils.common.entities.ServerUtilsPluginDescription;
+import net.frankheijden.serverutils.common.entities.results.PluginResults;
+
+/**
+ * A plugin manager of a platform which is able to load a new version of a plugin while its old version is still
+ * enabled, such that plugins can be reloaded by hot swapping them (see
+ * {@link AbstractPluginManager#hotSwapPluginsAsync(List)}).
+ */
+public interface HotSwapCapable<P, D extends ServerUtilsPluginDescription> {
+
+    /**
+     * Loads the given descriptions up to the point where they would become visible to the server, i.e. creates
+     * their classloaders and loads their classes, while the old versions of the plugins are still enabled.
+     * This must not touch the server's state, as it's called off the main thread.
+     * @return The staged plugins, in the order of the given descriptions.
+     */
+    PluginResults<P> stagePluginDescriptions(List<D> descriptions);
+
+    /**
+     * Completes loading the given staged plugins, after the old versions have been unloaded.
+     */
+    PluginResults<P> commitStagedPlugins(List<P> plugins);
+
+    /**
+     * Discards the given staged plugins, e.g. because the old versions couldn't be unloaded.
+     */
+    void discardStagedPlugins(List<P> plugins);
+}
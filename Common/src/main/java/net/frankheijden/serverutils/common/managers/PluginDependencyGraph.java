@@ -0,0 +1,206 @@
+package net.frankheijden.serverutils.common.managers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A live graph of the dependencies between loaded plugins, kept up-to-date through plugin load and unload events.
+ * Plugin ids are mapped onto int indices, such that edges and transitive closures can be kept in {@link BitSet}s.
+ * Edges to plugins which are not loaded are retained, such that they come into effect as soon as the plugin loads.
+ */
+public class PluginDependencyGraph {
+
+    private final Map<String, Integer> indices;
+    private final List<String> ids;
+    private final List<BitSet> dependencies;
+    private final List<BitSet> dependents;
+    private final BitSet loaded;
+    private final Deque<Integer> freeIndices;
+    private BitSet[] dependencyClosures;
+    private BitSet[] dependentClosures;
+
+    /**
+     * Constructs a new, empty dependency graph.
+     */
+    public PluginDependencyGraph() {
+        this.indices = new HashMap<>();
+        this.ids = new ArrayList<>();
+        this.dependencies = new ArrayList<>();
+        this.dependents = new ArrayList<>();
+        this.loaded = new BitSet();
+        this.freeIndices = new ArrayDeque<>();
+        this.dependencyClosures = new BitSet[0];
+        this.dependentClosures = new BitSet[0];
+    }
+
+    /**
+     * Marks the given plugin as loaded, replacing its dependencies with the given ones.
+     */
+    public synchronized void add(String pluginId, Collection<String> pluginDependencies) {
+        int index = indexOf(pluginId);
+        clearDependencies(index);
+        loaded.set(index);
+
+        BitSet dependencySet = dependencies.get(index);
+        for (String dependencyId : pluginDependencies) {
+            if (dependencyId.equals(pluginId)) continue;
+
+            int dependencyIndex = indexOf(dependencyId);
+            dependencySet.set(dependencyIndex);
+            dependents.get(dependencyIndex).set(index);
+        }
+
+        invalidateClosures();
+    }
+
+    /**
+     * Marks the given plugin as unloaded.
+     * Edges from other plugins towards it are kept, as these are declared by the plugins that are still loaded.
+     */
+    public synchronized void remove(String pluginId) {
+        Integer index = indices.get(pluginId);
+        if (index == null || !loaded.get(index)) return;
+
+        loaded.clear(index);
+        clearDependencies(index);
+        invalidateClosures();
+    }
+
+    /**
+     * Removes all plugins from the graph.
+     */
+    public synchronized void clear() {
+        indices.clear();
+        ids.clear();
+        dependencies.clear();
+        dependents.clear();
+        loaded.clear();
+        freeIndices.clear();
+        invalidateClosures();
+    }
+
+    public synchronized boolean contains(String pluginId) {
+        Integer index = indices.get(pluginId);
+        return index != null && loaded.get(index);
+    }
+
+    public synchronized int size() {
+        return loaded.cardinality();
+    }
+
+    /**
+     * Retrieves the loaded plugins which the given plugin directly depends on.
+     */
+    public synchronized List<String> getDependencies(String pluginId) {
+        Integer index = indices.get(pluginId);
+        return index == null ? new ArrayList<>() : toLoadedIds(dependencies.get(index));
+    }
+
+    /**
+     * Retrieves the loaded plugins which directly depend on the given plugin.
+     */
+    public synchronized List<String> getDependents(String pluginId) {
+        Integer index = indices.get(pluginId);
+        return index == null ? new ArrayList<>() : toLoadedIds(dependents.get(index));
+    }
+
+    /**
+     * Retrieves the loaded plugins which the given plugin depends on, directly or through other plugins.
+     */
+    public synchronized List<String> getTransitiveDependencies(String pluginId) {
+        Integer index = indices.get(pluginId);
+        return index == null ? new ArrayList<>() : toLoadedIds(closure(index, dependencies, dependencyClosures));
+    }
+
+    /**
+     * Retrieves the loaded plugins which depend on the given plugin, directly or through other plugins.
+     */
+    public synchronized List<String> getTransitiveDependents(String pluginId) {
+        Integer index = indices.get(pluginId);
+        return index == null ? new ArrayList<>() : toLoadedIds(closure(index, dependents, dependentClosures));
+    }
+
+    private int indexOf(String pluginId) {
+        Integer index = indices.get(pluginId);
+        if (index != null) return index;
+
+        // Reuse indices of unloaded plugins nobody refers to anymore, to keep the bitsets dense
+        while (!freeIndices.isEmpty()) {
+            int free = freeIndices.poll();
+            if (isUnused(free)) {
+                indices.remove(ids.get(free));
+                ids.set(free, pluginId);
+                indices.put(pluginId, free);
+                return free;
+            }
+        }
+
+        index = ids.size();
+        ids.add(pluginId);
+        dependencies.add(new BitSet());
+        dependents.add(new BitSet());
+        indices.put(pluginId, index);
+        return index;
+    }
+
+    private boolean isUnused(int index) {
+        return !loaded.get(index) && dependencies.get(index).isEmpty() && dependents.get(index).isEmpty();
+    }
+
+    private void clearDependencies(int index) {
+        BitSet dependencySet = dependencies.get(index);
+        for (int i = dependencySet.nextSetBit(0); i >= 0; i = dependencySet.nextSetBit(i + 1)) {
+            dependents.get(i).clear(index);
+            if (isUnused(i)) freeIndices.add(i);
+        }
+        dependencySet.clear();
+        if (isUnused(index)) freeIndices.add(index);
+    }
+
+    private void invalidateClosures() {
+        dependencyClosures = new BitSet[ids.size()];
+        dependentClosures = new BitSet[ids.size()];
+    }
+
+    private BitSet closure(int index, List<BitSet> edges, BitSet[] closures) {
+        BitSet closure = closures[index];
+        if (closure != null) return closure;
+
+        closure = new BitSet(ids.size());
+        Deque<Integer> queue = new ArrayDeque<>();
+        queue.add(index);
+        while (!queue.isEmpty()) {
+            int current = queue.poll();
+            BitSet next = edges.get(current);
+            for (int i = next.nextSetBit(0); i >= 0; i = next.nextSetBit(i + 1)) {
+                if (i == index || closure.get(i)) continue;
+                if (closures[i] != null) {
+                    closure.or(closures[i]);
+                    closure.set(i);
+                    continue;
+                }
+
+                closure.set(i);
+                queue.add(i);
+            }
+        }
+        closure.clear(index);
+
+        closures[index] = closure;
+        return closure;
+    }
+
+    private List<String> toLoadedIds(BitSet bitSet) {
+        List<String> result = new ArrayList<>(bitSet.cardinality());
+        for (int i = bitSet.nextSetBit(0); i >= 0; i = bitSet.nextSetBit(i + 1)) {
+            if (loaded.get(i)) result.add(ids.get(i));
+        }
+        return result;
+    }
+}
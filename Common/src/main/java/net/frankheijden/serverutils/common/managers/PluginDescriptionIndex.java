@@ -0,0 +1,305 @@
+package net.frankheijden.serverutils.common.managers;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import net.frankheijden.serverutils.common.entities.ServerUtilsPluginDescription;
+import net.frankheijden.serverutils.common.entities.exceptions.InvalidPluginDescriptionException;
+
+/**
+ * An index of plugin jars keyed by (path, size, last modified), which maps plugin ids to files and files to
+ * their descriptions without opening every jar on each lookup.
+ * Only the id of each jar is persisted, descriptions themselves are kept in memory for as long as the jar is unchanged.
+ */
+public class PluginDescriptionIndex<D extends ServerUtilsPluginDescription> {
+
+    private static final Gson gson = new Gson();
+    private static final Type ENTRIES_TYPE = new TypeToken<List<IndexEntry>>(){}.getType();
+
+    private final Path path;
+    private final DescriptionLoader<D> loader;
+    private final PluginDescriptionScanner<D> scanner;
+    private final Map<String, IndexEntry> entries;
+    private final Map<String, D> descriptions;
+    private final Map<String, String> pluginIdToPath;
+    private boolean dirty = false;
+
+    /**
+     * Constructs a new, empty PluginDescriptionIndex which persists to the given path.
+     */
+    public PluginDescriptionIndex(Path path, DescriptionLoader<D> loader) {
+        this.path = path;
+        this.loader = loader;
+        this.scanner = new PluginDescriptionScanner<>(loader);
+        this.entries = new HashMap<>();
+        this.descriptions = new HashMap<>();
+        this.pluginIdToPath = new HashMap<>();
+    }
+
+    /**
+     * Loads and constructs a new {@link PluginDescriptionIndex} from the given {@link Path}.
+     * A missing or corrupt index file results in an empty index, which will be rebuilt on first use.
+     */
+    public static <D extends ServerUtilsPluginDescription> PluginDescriptionIndex<D> load(
+            Path path,
+            DescriptionLoader<D> loader
+    ) {
+        PluginDescriptionIndex<D> index = new PluginDescriptionIndex<>(path, loader);
+        if (Files.exists(path)) {
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                List<IndexEntry> entries = gson.fromJson(reader, ENTRIES_TYPE);
+                if (entries != null) {
+                    for (IndexEntry entry : entries) {
+                        if (entry == null || entry.path == null) continue;
+                        index.entries.put(entry.path, entry);
+                        if (entry.pluginId != null) index.pluginIdToPath.putIfAbsent(entry.pluginId, entry.path);
+                    }
+                }
+            } catch (IOException | JsonParseException ex) {
+                index.entries.clear();
+                index.pluginIdToPath.clear();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Attempts to find the file for a given plugin id, amongst the given jars.
+     * If the id is indexed, only its jar is checked to be unchanged. Only on a miss or a changed jar, the jars are
+     * listed and the index is refreshed, opening only jars which have been added or modified since they were last
+     * indexed.
+     */
+    public synchronized Optional<File> getPluginFile(String pluginId, Supplier<File[]> jars) {
+        String pluginPath = pluginIdToPath.get(pluginId);
+        if (pluginPath != null && isUnchanged(pluginPath)) return Optional.of(new File(pluginPath));
+
+        refresh(jars.get());
+        pluginPath = pluginIdToPath.get(pluginId);
+        return pluginPath == null ? Optional.empty() : Optional.of(new File(pluginPath));
+    }
+
+    /**
+     * Retrieves the description of a jar, parsing it only if the jar changed since it was last indexed.
+     * @throws InvalidPluginDescriptionException Iff the jar does not contain a valid description.
+     */
+    public synchronized Optional<D> getPluginDescription(File file) throws InvalidPluginDescriptionException {
+        String key = file.getAbsolutePath();
+        BasicFileAttributes attributes = readAttributes(file);
+        if (attributes == null) {
+            if (remove(key)) save();
+            return Optional.empty();
+        }
+
+        IndexEntry entry = entries.get(key);
+        if (entry != null && entry.matches(attributes)) {
+            D description = descriptions.get(key);
+            if (description != null) return Optional.of(description);
+            if (entry.pluginId == null) {
+                throw new InvalidPluginDescriptionException("Plugin from " + file + " is invalid");
+            }
+        }
+
+        Optional<D> descriptionOptional = index(file, key, attributes);
+        save();
+        if (!descriptionOptional.isPresent()) {
+            throw new InvalidPluginDescriptionException("Plugin from " + file + " is invalid");
+        }
+        return descriptionOptional;
+    }
+
+    /**
+     * Puts a freshly parsed description into the index, e.g. after a plugin has been loaded from it.
+     */
+    public synchronized void put(D description) {
+        File file = description.getFile();
+        BasicFileAttributes attributes = readAttributes(file);
+        if (attributes == null) return;
+
+        String key = file.getAbsolutePath();
+        IndexEntry previous = entries.put(key, new IndexEntry(key, attributes, description.getId()));
+        descriptions.put(key, description);
+        pluginIdToPath.put(description.getId(), key);
+        if (previous == null || !description.getId().equals(previous.pluginId) || !previous.matches(attributes)) {
+            dirty = true;
+            save();
+        }
+    }
+
+    /**
+     * Brings the index up-to-date with the given jars, opening only new or modified jars.
+     * Stale jars are scanned in parallel by the {@link PluginDescriptionScanner}.
+     */
+    public synchronized void refresh(File[] jars) {
+        Set<String> seen = new HashSet<>(jars.length);
+        Map<File, BasicFileAttributes> stale = new LinkedHashMap<>();
+        for (File jar : jars) {
+            String key = jar.getAbsolutePath();
+            seen.add(key);
+
+            BasicFileAttributes attributes = readAttributes(jar);
+            if (attributes == null) {
+                remove(key);
+                continue;
+            }
+
+            IndexEntry entry = entries.get(key);
+            if (entry == null || !entry.matches(attributes)) {
+                stale.put(jar, attributes);
+            }
+        }
+
+        if (!stale.isEmpty()) {
+            Map<File, PluginDescriptionScanner.ScanResult<D>> results = scanner.scan(stale.keySet());
+            stale.forEach((jar, attributes) -> record(jar.getAbsolutePath(), attributes, results.get(jar)));
+        }
+
+        if (entries.keySet().retainAll(seen)) {
+            descriptions.keySet().retainAll(seen);
+            dirty = true;
+        }
+
+        // Rebuild in jar order, such that the first jar wins when multiple jars share an id
+        pluginIdToPath.clear();
+        for (File jar : jars) {
+            IndexEntry entry = entries.get(jar.getAbsolutePath());
+            if (entry != null && entry.pluginId != null) pluginIdToPath.putIfAbsent(entry.pluginId, entry.path);
+        }
+
+        save();
+    }
+
+    /**
+     * Invalidates the index entry of given file, forcing it to be parsed again on the next lookup.
+     */
+    public synchronized void invalidate(File file) {
+        if (remove(file.getAbsolutePath())) save();
+    }
+
+    private Optional<D> index(File file, String key, BasicFileAttributes attributes) {
+        Optional<D> descriptionOptional;
+        try {
+            descriptionOptional = loader.load(file);
+        } catch (InvalidPluginDescriptionException ex) {
+            descriptionOptional = Optional.empty();
+        }
+
+        record(key, attributes, descriptionOptional);
+        return descriptionOptional;
+    }
+
+    private void record(String key, BasicFileAttributes attributes, PluginDescriptionScanner.ScanResult<D> result) {
+        Optional<D> descriptionOptional;
+        try {
+            descriptionOptional = result.getDescription();
+        } catch (InvalidPluginDescriptionException ex) {
+            descriptionOptional = Optional.empty();
+        }
+        record(key, attributes, descriptionOptional);
+    }
+
+    private void record(String key, BasicFileAttributes attributes, Optional<D> descriptionOptional) {
+        String pluginId = descriptionOptional.map(ServerUtilsPluginDescription::getId).orElse(null);
+        IndexEntry previous = entries.put(key, new IndexEntry(key, attributes, pluginId));
+        if (previous != null && previous.pluginId != null) pluginIdToPath.remove(previous.pluginId, key);
+
+        if (descriptionOptional.isPresent()) {
+            descriptions.put(key, descriptionOptional.get());
+            pluginIdToPath.putIfAbsent(pluginId, key);
+        } else {
+            descriptions.remove(key);
+        }
+
+        dirty = true;
+    }
+
+    private boolean remove(String key) {
+        descriptions.remove(key);
+        IndexEntry entry = entries.remove(key);
+        if (entry == null) return false;
+
+        if (entry.pluginId != null) pluginIdToPath.remove(entry.pluginId, key);
+        dirty = true;
+        return true;
+    }
+
+    private boolean isUnchanged(String key) {
+        IndexEntry entry = entries.get(key);
+        if (entry == null) return false;
+
+        BasicFileAttributes attributes = readAttributes(new File(key));
+        return attributes != null && entry.matches(attributes);
+    }
+
+    private static BasicFileAttributes readAttributes(File file) {
+        try {
+            return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Saves the index to the {@link Path} it was loaded from, if it changed.
+     */
+    public synchronized void save() {
+        if (!dirty) return;
+
+        try {
+            if (path.getParent() != null && Files.notExists(path.getParent())) {
+                Files.createDirectories(path.getParent());
+            }
+
+            Files.write(
+                    path,
+                    gson.toJson(new ArrayList<>(entries.values()), ENTRIES_TYPE).getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING
+            );
+            dirty = false;
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    public interface DescriptionLoader<D extends ServerUtilsPluginDescription> {
+
+        Optional<D> load(File file) throws InvalidPluginDescriptionException;
+    }
+
+    private static final class IndexEntry {
+
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final String pluginId;
+
+        private IndexEntry(String path, BasicFileAttributes attributes, String pluginId) {
+            this.path = path;
+            this.size = attributes.size();
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+            this.pluginId = pluginId;
+        }
+
+        private boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size() && lastModified == attributes.lastModifiedTime().toMillis();
+        }
+    }
+}
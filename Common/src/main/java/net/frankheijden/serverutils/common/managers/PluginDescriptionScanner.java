@@ -0,0 +1,78 @@
+package net.frankheijden.serverutils.common.managers;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import net.frankheijden.serverutils.common.entities.ServerUtilsPluginDescription;
+import net.frankheijden.serverutils.common.entities.exceptions.InvalidPluginDescriptionException;
+import net.frankheijden.serverutils.common.utils.ParallelUtils;
+
+/**
+ * Scans plugin jars for their descriptions in parallel, using the bounded fork-join pool of {@link ParallelUtils}.
+ * The platform specific part (opening the jar and parsing its descriptor) is supplied as a
+ * {@link PluginDescriptionIndex.DescriptionLoader}, which must be safe to call from multiple threads.
+ */
+public class PluginDescriptionScanner<D extends ServerUtilsPluginDescription> {
+
+    private final PluginDescriptionIndex.DescriptionLoader<D> loader;
+
+    public PluginDescriptionScanner(PluginDescriptionIndex.DescriptionLoader<D> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Scans the given jars and returns a snapshot of their results, in the iteration order of the given files.
+     */
+    public Map<File, ScanResult<D>> scan(Collection<File> files) {
+        List<File> fileList = new ArrayList<>(files);
+        List<ScanResult<D>> results = ParallelUtils.map(fileList, this::load);
+
+        Map<File, ScanResult<D>> resultMap = new LinkedHashMap<>(fileList.size());
+        for (int i = 0; i < fileList.size(); i++) {
+            resultMap.put(fileList.get(i), results.get(i));
+        }
+        return Collections.unmodifiableMap(resultMap);
+    }
+
+    private ScanResult<D> load(File file) {
+        try {
+            return new ScanResult<>(loader.load(file).orElse(null), null);
+        } catch (InvalidPluginDescriptionException ex) {
+            return new ScanResult<>(null, ex);
+        } catch (RuntimeException ex) {
+            return new ScanResult<>(null, new InvalidPluginDescriptionException(ex));
+        }
+    }
+
+    /**
+     * The outcome of scanning a single jar, either a (possibly absent) description or the reason it is invalid.
+     */
+    public static final class ScanResult<D extends ServerUtilsPluginDescription> {
+
+        private final D description;
+        private final InvalidPluginDescriptionException exception;
+
+        private ScanResult(D description, InvalidPluginDescriptionException exception) {
+            this.description = description;
+            this.exception = exception;
+        }
+
+        /**
+         * Retrieves the scanned description.
+         * @throws InvalidPluginDescriptionException Iff the jar does not contain a valid description.
+         */
+        public Optional<D> getDescription() throws InvalidPluginDescriptionException {
+            if (exception != null) throw exception;
+            return Optional.ofNullable(description);
+        }
+
+        public boolean isValid() {
+            return exception == null && description != null;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package net.frankheijden.serverutils.common.managers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import net.frankheijden.serverutils.common.utils.FileUtils;
+
+/**
+ * Records the fingerprint of the jar each plugin was loaded from, such that plugins whose jar changed can be found
+ * without reading all jars: a jar is only hashed again if its size or modification time differs from the recorded
+ * fingerprint. Fingerprints are taken while preparing the jars, and only committed once their plugin has loaded.
+ */
+public class PluginFingerprints {
+
+    private final Map<String, Fingerprint> preparedFingerprints;
+    private final Map<String, Fingerprint> pluginFingerprints;
+
+    public PluginFingerprints() {
+        this.preparedFingerprints = new ConcurrentHashMap<>();
+        this.pluginFingerprints = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Takes the fingerprint of the given file.
+     * @return The fingerprint, or null if the file couldn't be read.
+     */
+    public static Fingerprint take(File file) {
+        Fingerprint fingerprint = observe(file);
+        if (fingerprint == null) return null;
+        return fingerprint.withHash(FileUtils.getHash(file.toPath()));
+    }
+
+    /**
+     * Observes the size and modification time of the given file, without hashing it.
+     * @return The fingerprint without hash, or null if the file couldn't be read.
+     */
+    public static Fingerprint observe(File file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            return new Fingerprint(attributes.size(), attributes.lastModifiedTime().toMillis(), null);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Records the fingerprint of a jar which is about to be loaded from the given file.
+     */
+    public void prepare(File file, Fingerprint fingerprint) {
+        if (fingerprint == null || fingerprint.hash == null) return;
+        preparedFingerprints.put(getKey(file), fingerprint);
+    }
+
+    /**
+     * Commits the prepared fingerprint of the given file, after the given plugin was loaded from it.
+     */
+    public void commit(String pluginId, File file) {
+        Fingerprint fingerprint = preparedFingerprints.remove(getKey(file));
+        if (fingerprint != null) pluginFingerprints.put(pluginId, fingerprint);
+    }
+
+    /**
+     * Discards the prepared fingerprint of the given file, e.g. because it failed to load.
+     */
+    public void discard(File file) {
+        preparedFingerprints.remove(getKey(file));
+    }
+
+    /**
+     * Records the fingerprint of the given jar for the plugin, iff it has none yet.
+     * This serves as the baseline for plugins which were loaded by the server itself.
+     */
+    public void adopt(String pluginId, File file) {
+        if (pluginFingerprints.containsKey(pluginId)) return;
+
+        Fingerprint fingerprint = take(file);
+        if (fingerprint != null && fingerprint.hash != null) pluginFingerprints.putIfAbsent(pluginId, fingerprint);
+    }
+
+    public void remove(String pluginId) {
+        pluginFingerprints.remove(pluginId);
+    }
+
+    /**
+     * Checks whether the contents of the given jar differ from the jar the plugin was loaded from.
+     * Plugins without a recorded fingerprint (e.g. loaded by the server itself) adopt the jar as their fingerprint.
+     */
+    public boolean hasChanged(String pluginId, File file) {
+        Fingerprint observed = observe(file);
+        if (observed == null) return false;
+
+        Fingerprint recorded = pluginFingerprints.get(pluginId);
+        if (recorded != null && recorded.size == observed.size && recorded.lastModified == observed.lastModified) {
+            return false;
+        }
+
+        String hash = FileUtils.getHash(file.toPath());
+        if (hash == null) return false;
+        if (recorded != null && !recorded.hash.equals(hash)) return true;
+
+        // Same contents (e.g. the jar was only touched), so its new size and modification time can be trusted
+        pluginFingerprints.put(pluginId, observed.withHash(hash));
+        return false;
+    }
+
+    private static String getKey(File file) {
+        return file.getAbsolutePath();
+    }
+
+    public static final class Fingerprint {
+
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+
+        private Fingerprint(long size, long lastModified, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        public Fingerprint withHash(String hash) {
+            return new Fingerprint(size, lastModified, hash);
+        }
+
+        public String getHash() {
+            return hash;
+        }
+    }
+}
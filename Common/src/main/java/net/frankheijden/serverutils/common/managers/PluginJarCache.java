@@ -0,0 +1,111 @@
+package net.frankheijden.serverutils.common.managers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import net.frankheijden.serverutils.common.utils.FileFingerprinter;
+import net.frankheijden.serverutils.common.utils.FileUtils;
+
+/**
+ * A content-addressed cache of plugin jars, from which plugins can be loaded instead of from the plugins folder.
+ * Copies are named after the hash of their contents and never modified, such that the jars in the plugins folder
+ * can be overwritten while their classloaders are still open, and identical jars share a single copy.
+ * Copies which are no longer used by any loaded plugin are deleted by {@link #collectGarbage(Collection)}.
+ */
+public class PluginJarCache {
+
+    private static final String JAR_EXTENSION = ".jar";
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+
+    private final Path directory;
+    private final Set<Path> pending;
+
+    public PluginJarCache(Path directory) {
+        this.directory = directory.toAbsolutePath().normalize();
+        this.pending = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Copies the given jar into the cache, unless an identical copy exists already.
+     * The copy is protected from garbage collection until it is released.
+     * @return The cached copy.
+     */
+    public File copy(File file) throws IOException {
+        Files.createDirectories(directory);
+
+        // Hash the copy instead of the source, such that the name matches the contents even if the source changed
+        Path temporaryPath = Files.createTempFile(directory, file.getName(), TEMPORARY_EXTENSION);
+        try {
+            Files.copy(file.toPath(), temporaryPath, StandardCopyOption.REPLACE_EXISTING);
+            String hash = FileUtils.getFingerprinter().compute(temporaryPath, FileFingerprinter.Algorithm.MD5);
+            if (hash == null) throw new IOException("Unable to hash " + file);
+
+            Path path = directory.resolve(hash + JAR_EXTENSION);
+            synchronized (this) {
+                pending.add(path);
+                if (Files.notExists(path)) {
+                    Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            return path.toFile();
+        } finally {
+            Files.deleteIfExists(temporaryPath);
+        }
+    }
+
+    /**
+     * Releases the protection of the given copy, after the plugin has been loaded from it (or failed to).
+     */
+    public void release(File file) {
+        pending.remove(file.toPath().toAbsolutePath().normalize());
+    }
+
+    /**
+     * Checks whether the given file is a copy in this cache.
+     */
+    public boolean contains(File file) {
+        return file != null && directory.equals(file.toPath().toAbsolutePath().normalize().getParent());
+    }
+
+    /**
+     * Retrieves the hash of the contents of the given copy, which is encoded in its name.
+     */
+    public String getHash(File file) {
+        String name = file.getName();
+        return name.substring(0, name.length() - JAR_EXTENSION.length());
+    }
+
+    /**
+     * Deletes all copies which are not used by the given files, nor pending to be loaded.
+     * Copies which can't be deleted yet (e.g. because they are still opened on Windows) are retried next time.
+     */
+    public synchronized void collectGarbage(Collection<File> usedFiles) {
+        if (Files.notExists(directory)) return;
+
+        Set<Path> used = new HashSet<>(pending);
+        for (File file : usedFiles) {
+            if (file != null) used.add(file.toPath().toAbsolutePath().normalize());
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                if (used.contains(path) || !path.getFileName().toString().endsWith(JAR_EXTENSION)) continue;
+
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException ignored) {
+                    //
+                }
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+}
@@ -1,10 +1,8 @@
 package net.frankheijden.serverutils.common.managers;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import net.frankheijden.serverutils.common.entities.ServerUtilsAudience;
 import net.frankheijden.serverutils.common.entities.ServerUtilsPlugin;
 import net.frankheijden.serverutils.common.entities.results.PluginWatchResults;
@@ -13,41 +11,37 @@ import net.frankheijden.serverutils.common.tasks.PluginWatcherTask;
 
 public class WatchManager<P, T> {
 
+    private static final String WATCHER_TASK_KEY = "plugin-watcher";
+
     private final ServerUtilsPlugin<P, T, ?, ?, ?> plugin;
-    private final Map<String, WatchTask> watchTasks;
+    private final Map<String, PluginWatcherTask<P, T>.Session> watchSessions;
+    private PluginWatcherTask<P, T> watcherTask = null;
+    private HotDropManager<P, T> hotDropManager = null;
 
     public WatchManager(ServerUtilsPlugin<P, T, ?, ?, ?> plugin) {
         this.plugin = plugin;
-        this.watchTasks = new HashMap<>();
+        this.watchSessions = new ConcurrentHashMap<>();
     }
 
     /**
      * Starts watching the specified plugin and reloads it when a change is detected.
+     * All sessions (and hot drop) share a single watcher of the plugins folder, which is started on demand.
      */
-    public PluginWatchResults watchPlugins(ServerUtilsAudience<?> sender, List<P> plugins) {
-        List<String> pluginIds = new ArrayList<>(plugins.size());
+    public synchronized PluginWatchResults watchPlugins(ServerUtilsAudience<?> sender, List<P> plugins) {
         for (P watchPlugin : plugins) {
             String pluginId = plugin.getPluginManager().getPluginId(watchPlugin);
-            if (watchTasks.containsKey(pluginId)) {
+            if (watchSessions.containsKey(pluginId)) {
                 return new PluginWatchResults().add(WatchResult.ALREADY_WATCHING, "plugin", pluginId);
             }
-
-            pluginIds.add(plugin.getPluginManager().getPluginId(watchPlugin));
         }
 
-        UUID key = UUID.randomUUID();
-        plugin.getTaskManager().runTaskAsynchronously(
-                key.toString(),
-                new PluginWatcherTask<>(plugin, sender, plugins)
-        );
-
-        WatchTask watchTask = new WatchTask(key, pluginIds);
-        for (String pluginId : pluginIds) {
-            watchTasks.put(pluginId, watchTask);
+        PluginWatcherTask<P, T>.Session session = getWatcherTask().subscribe(sender, plugins);
+        for (String pluginId : session.getPluginIds()) {
+            watchSessions.put(pluginId, session);
         }
 
         PluginWatchResults watchResults = new PluginWatchResults();
-        for (String pluginId : pluginIds) {
+        for (String pluginId : session.getPluginIds()) {
             watchResults.add(WatchResult.START, "plugin", pluginId);
         }
         return watchResults;
@@ -56,28 +50,80 @@ public class WatchManager<P, T> {
     /**
      * Stops watching plugins for changes.
      */
-    public PluginWatchResults unwatchPluginsAssociatedWith(String associatedPluginId) {
-        WatchTask task = watchTasks.get(associatedPluginId);
-        if (task != null && plugin.getTaskManager().cancelTask(task.key.toString())) {
-            task.pluginIds.forEach(watchTasks::remove);
-
-            PluginWatchResults watchResults = new PluginWatchResults();
-            for (String pluginId : task.pluginIds) {
-                watchResults.add(WatchResult.STOPPED, "plugin", pluginId);
-            }
-            return watchResults;
+    public synchronized PluginWatchResults unwatchPluginsAssociatedWith(String associatedPluginId) {
+        PluginWatcherTask<P, T>.Session session = watchSessions.get(associatedPluginId);
+        if (session == null || watcherTask == null) {
+            return new PluginWatchResults().add(WatchResult.NOT_WATCHING, "plugin", associatedPluginId);
+        }
+
+        watcherTask.unsubscribe(session);
+        removeSession(session);
+
+        PluginWatchResults watchResults = new PluginWatchResults();
+        for (String pluginId : session.getPluginIds()) {
+            watchResults.add(WatchResult.STOPPED, "plugin", pluginId);
         }
-        return new PluginWatchResults().add(WatchResult.NOT_WATCHING, "plugin", associatedPluginId);
+        return watchResults;
     }
 
-    private static final class WatchTask {
+    /**
+     * Starts or stops deploying jars dropped into the plugins folder, according to the config.
+     */
+    public synchronized void updateHotDrop() {
+        boolean enabled = plugin.getConfigResource().getConfig().getBoolean("hot-drop.enabled");
+        if (enabled && hotDropManager == null) {
+            hotDropManager = new HotDropManager<>(plugin);
+            getWatcherTask().addListener(hotDropManager);
+        } else if (!enabled && hotDropManager != null) {
+            hotDropManager.cancel();
+            if (watcherTask != null) watcherTask.removeListener(hotDropManager);
+            hotDropManager = null;
+            stopWatcherTaskIfIdle();
+        }
+    }
 
-        private final UUID key;
-        private final List<String> pluginIds;
+    /**
+     * Retrieves the watcher of the plugins folder, starting it if it isn't running (anymore).
+     */
+    private PluginWatcherTask<P, T> getWatcherTask() {
+        if (watcherTask == null || watcherTask.isTerminated()) {
+            watcherTask = new PluginWatcherTask<>(plugin, this::handleSessionEnded, this::handleWatcherTerminated);
+            plugin.getTaskManager().runTaskAsynchronously(WATCHER_TASK_KEY, watcherTask);
+        }
+        return watcherTask;
+    }
+
+    /**
+     * Forgets the given watcher after it stopped by itself, e.g. because the plugins folder could not be watched.
+     * Its sessions have been ended already, and hot drop is stopped until the config is reloaded.
+     */
+    private synchronized void handleWatcherTerminated(PluginWatcherTask<P, T> task) {
+        if (watcherTask != task) return;
+        watcherTask = null;
+
+        if (hotDropManager != null) {
+            hotDropManager.cancel();
+            hotDropManager = null;
+            plugin.getLogger().warning("Hot drop stopped because the plugins folder can no longer be watched.");
+        }
+    }
+
+    private synchronized void handleSessionEnded(PluginWatcherTask<P, T>.Session session) {
+        removeSession(session);
+    }
+
+    /**
+     * Removes the session, stopping the watcher if no sessions are left.
+     */
+    private void removeSession(PluginWatcherTask<P, T>.Session session) {
+        session.getPluginIds().forEach(pluginId -> watchSessions.remove(pluginId, session));
+        stopWatcherTaskIfIdle();
+    }
 
-        private WatchTask(UUID key, List<String> pluginIds) {
-            this.key = key;
-            this.pluginIds = pluginIds;
+    private void stopWatcherTaskIfIdle() {
+        if (watcherTask != null && !watcherTask.hasSessions() && !watcherTask.hasListeners()) {
+            plugin.getTaskManager().cancelTask(WATCHER_TASK_KEY);
+            watcherTask = null;
         }
     }
 }
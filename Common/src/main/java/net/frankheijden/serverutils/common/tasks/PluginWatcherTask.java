@@ -1,23 +1,24 @@
 package net.frankheijden.serverutils.common.tasks;
 
-import com.sun.nio.file.SensitivityWatchEventModifier;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.ClosedWatchServiceException;
-import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardWatchEventKinds;
-import java.nio.file.WatchEvent;
-import java.nio.file.WatchKey;
-import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import net.frankheijden.serverutils.common.config.MessageKey;
+import net.frankheijden.serverutils.common.config.ServerUtilsConfig;
 import net.frankheijden.serverutils.common.entities.AbstractTask;
 import net.frankheijden.serverutils.common.entities.ServerUtilsAudience;
 import net.frankheijden.serverutils.common.entities.ServerUtilsPlugin;
@@ -25,89 +26,208 @@ import net.frankheijden.serverutils.common.entities.ServerUtilsPluginDescription
 import net.frankheijden.serverutils.common.entities.exceptions.InvalidPluginDescriptionException;
 import net.frankheijden.serverutils.common.entities.results.PluginResult;
 import net.frankheijden.serverutils.common.entities.results.PluginResults;
+import net.frankheijden.serverutils.common.entities.results.PreparedPlugins;
 import net.frankheijden.serverutils.common.entities.results.WatchResult;
 import net.frankheijden.serverutils.common.managers.AbstractPluginManager;
 import net.frankheijden.serverutils.common.utils.FileUtils;
+import net.frankheijden.serverutils.common.watchers.NativeWatcherBackend;
+import net.frankheijden.serverutils.common.watchers.PollingWatcherBackend;
+import net.frankheijden.serverutils.common.watchers.WatcherBackend;
 import net.kyori.adventure.text.minimessage.Template;
 
+/**
+ * Watches the plugins folder on a single thread using a {@link WatcherBackend}, and dispatches file events to the
+ * {@link Session}s watching the changed plugins. The watch entries are kept in concurrent maps, such that sessions
+ * can (un)subscribe while events are being dispatched without locking.
+ */
 public class PluginWatcherTask<P, T> extends AbstractTask {
 
-    private static final WatchEvent.Kind<?>[] EVENTS = new WatchEvent.Kind[]{
-        StandardWatchEventKinds.ENTRY_CREATE,
-        StandardWatchEventKinds.ENTRY_MODIFY,
-        StandardWatchEventKinds.ENTRY_DELETE
+    private static final String BACKEND_AUTO = "auto";
+    private static final String BACKEND_NATIVE = "native";
+    private static final String BACKEND_POLLING = "polling";
+    private static final String[] REMOTE_FILE_SYSTEM_PREFIXES = {
+        "nfs", "cifs", "smb", "fuse", "virtiofs", "9p", "vboxsf"
     };
 
     private final ServerUtilsPlugin<P, T, ?, ?, ?> plugin;
-    private final ServerUtilsAudience<?> sender;
+    private final Path basePath;
+    private final Consumer<Session> sessionEndHandler;
+    private final Consumer<PluginWatcherTask<P, T>> terminationHandler;
+    private final Set<Session> sessions;
+    private final Set<Consumer<Path>> listeners;
     private final Map<String, WatchEntry> fileNameToWatchEntryMap;
     private final Map<String, WatchEntry> pluginIdToWatchEntryMap;
 
     private final AtomicBoolean run = new AtomicBoolean(true);
-    private WatchService watchService;
-    private T task = null;
+    private volatile WatcherBackend backend = null;
+    private volatile boolean terminated = false;
 
     /**
-     * Constructs a new PluginWatcherTask for the specified plugin.
+     * Constructs a new PluginWatcherTask for the plugins folder of the specified plugin.
+     * @param sessionEndHandler Invoked when a session ended by itself, i.e. not by unsubscribing.
+     * @param terminationHandler Invoked when the watcher stopped by itself, i.e. not by cancelling it, after all
+     *                           sessions have been ended.
      */
-    public PluginWatcherTask(ServerUtilsPlugin<P, T, ?, ?, ?> plugin, ServerUtilsAudience<?> sender, List<P> plugins) {
+    public PluginWatcherTask(
+            ServerUtilsPlugin<P, T, ?, ?, ?> plugin,
+            Consumer<Session> sessionEndHandler,
+            Consumer<PluginWatcherTask<P, T>> terminationHandler
+    ) {
         this.plugin = plugin;
-        this.sender = sender;
-        this.fileNameToWatchEntryMap = new HashMap<>();
-        this.pluginIdToWatchEntryMap = new HashMap<>();
+        this.basePath = plugin.getPluginManager().getPluginsFolder().toPath();
+        this.sessionEndHandler = sessionEndHandler;
+        this.terminationHandler = terminationHandler;
+        this.sessions = ConcurrentHashMap.newKeySet();
+        this.listeners = ConcurrentHashMap.newKeySet();
+        this.fileNameToWatchEntryMap = new ConcurrentHashMap<>();
+        this.pluginIdToWatchEntryMap = new ConcurrentHashMap<>();
+    }
 
+    /**
+     * Starts a new session which watches the given plugins.
+     */
+    public Session subscribe(ServerUtilsAudience<?> sender, List<P> plugins) {
         AbstractPluginManager<P, ?> pluginManager = plugin.getPluginManager();
+        Session session = new Session(sender);
         for (P watchPlugin : plugins) {
-            File file = pluginManager.getPluginFile(watchPlugin);
+            File file = pluginManager.getPluginSourceFile(watchPlugin);
 
-            WatchEntry entry = new WatchEntry(pluginManager.getPluginId(watchPlugin));
+            WatchEntry entry = new WatchEntry(pluginManager.getPluginId(watchPlugin), session);
             entry.update(file);
 
+            session.pluginIds.add(entry.pluginId);
             this.fileNameToWatchEntryMap.put(file.getName(), entry);
         }
+
+        sessions.add(session);
+        return session;
+    }
+
+    /**
+     * Stops the given session from receiving any more events.
+     */
+    public void unsubscribe(Session session) {
+        sessions.remove(session);
+        fileNameToWatchEntryMap.values().removeIf(entry -> entry.session == session);
+        pluginIdToWatchEntryMap.values().removeIf(entry -> entry.session == session);
+
+        T task = session.task;
+        if (task != null) plugin.getTaskManager().cancelTask(task);
+    }
+
+    public boolean hasSessions() {
+        return !sessions.isEmpty();
+    }
+
+    /**
+     * Adds a listener which receives every changed file in the plugins folder on the watcher thread, regardless of
+     * whether any session watches it.
+     */
+    public void addListener(Consumer<Path> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<Path> listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Checks whether the watcher stopped, after which it won't deliver any more events to its sessions and listeners.
+     */
+    public boolean isTerminated() {
+        return terminated;
     }
 
     @Override
     public void run() {
-        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
-            this.watchService = watchService;
-
-            AbstractPluginManager<P, ?> pluginManager = plugin.getPluginManager();
-            Path basePath = pluginManager.getPluginsFolder().toPath();
-            basePath.register(watchService, EVENTS, SensitivityWatchEventModifier.HIGH);
+        try (WatcherBackend backend = createBackend()) {
+            this.backend = backend;
+            if (!run.get()) return;
 
             while (run.get()) {
-                WatchKey key = watchService.take();
-                for (WatchEvent<?> event : key.pollEvents()) {
-                    Path path = basePath.resolve((Path) event.context());
+                List<Path> paths = backend.take();
+                if (paths == null) break;
 
-                    if (!Files.isDirectory(path)) {
-                        handleWatchEvent(path);
-                    }
-                }
+                for (Path path : paths) {
+                    if (Files.isDirectory(path)) continue;
 
-                if ((fileNameToWatchEntryMap.isEmpty() && pluginIdToWatchEntryMap.isEmpty()) || !key.reset()) {
-                    send(WatchResult.STOPPED);
-                    break;
+                    handleWatchEvent(path);
+                    for (Consumer<Path> listener : listeners) {
+                        listener.accept(path);
+                    }
                 }
             }
-        } catch (IOException ex) {
+        } catch (IOException | RuntimeException ex) {
             ex.printStackTrace();
         } catch (InterruptedException ex) {
             Thread.currentThread().interrupt();
-        } catch (ClosedWatchServiceException ignored) {
-            //
+        } finally {
+            terminated = true;
+            if (run.get()) {
+                // The watcher died by itself, so nothing relying on it would ever receive an event again
+                for (Session session : sessions) {
+                    endSession(session);
+                }
+                listeners.clear();
+                terminationHandler.accept(this);
+            }
+        }
+    }
+
+    /**
+     * Creates the backend configured at "watch-plugins.backend". In "auto" mode, the folder is polled if it resides
+     * on a file system which doesn't deliver native events (reliably), or if native watching is not available.
+     */
+    private WatcherBackend createBackend() throws IOException {
+        ServerUtilsConfig config = plugin.getConfigResource().getConfig();
+        String type = config.getString("watch-plugins.backend");
+        if (type == null) type = BACKEND_AUTO;
+
+        if (!type.equalsIgnoreCase(BACKEND_POLLING)) {
+            boolean auto = !type.equalsIgnoreCase(BACKEND_NATIVE);
+            if (!auto || !isRemoteFileSystem(basePath)) {
+                try {
+                    return new NativeWatcherBackend(basePath);
+                } catch (IOException | UnsupportedOperationException ex) {
+                    if (!auto) throw ex;
+                }
+            }
+        }
+
+        return new PollingWatcherBackend(
+                basePath,
+                config.getInt("watch-plugins.polling.interval-millis"),
+                config.getInt("watch-plugins.polling.max-files-per-scan")
+        );
+    }
+
+    private static boolean isRemoteFileSystem(Path path) {
+        String type;
+        try {
+            type = Files.getFileStore(path).type().toLowerCase(Locale.ROOT);
+        } catch (IOException ex) {
+            return false;
+        }
+
+        for (String prefix : REMOTE_FILE_SYSTEM_PREFIXES) {
+            if (type.startsWith(prefix)) return true;
         }
+        return false;
     }
 
     private void handleWatchEvent(Path path) {
         String fileName = path.getFileName().toString();
         WatchEntry entry = fileNameToWatchEntryMap.get(fileName);
 
-        if (entry == null && Files.exists(path)) {
+        if (entry == null && !pluginIdToWatchEntryMap.isEmpty() && Files.exists(path)) {
+            AbstractPluginManager<P, ?> pluginManager = plugin.getPluginManager();
             Optional<? extends ServerUtilsPluginDescription> descriptionOptional;
             try {
-                descriptionOptional = plugin.getPluginManager().getPluginDescription(path.toFile());
+                descriptionOptional = pluginManager.getDescriptionIndex().getPluginDescription(path.toFile());
             } catch (InvalidPluginDescriptionException ignored) {
                 return;
             }
@@ -116,10 +236,11 @@ public class PluginWatcherTask<P, T> extends AbstractTask {
                 ServerUtilsPluginDescription description = descriptionOptional.get();
                 WatchEntry foundEntry = pluginIdToWatchEntryMap.remove(description.getId());
                 if (foundEntry != null) {
-                    send(WatchResult.DELETED_FILE_IS_CREATED, Template.template("plugin", foundEntry.pluginId));
+                    Session session = foundEntry.session;
+                    session.send(WatchResult.DELETED_FILE_IS_CREATED, Template.template("plugin", foundEntry.pluginId));
                     fileNameToWatchEntryMap.put(fileName, foundEntry);
 
-                    if (pluginIdToWatchEntryMap.isEmpty()) {
+                    if (pluginIdToWatchEntryMap.values().stream().noneMatch(e -> e.session == session)) {
                         entry = foundEntry;
                     }
                 }
@@ -132,87 +253,222 @@ public class PluginWatcherTask<P, T> extends AbstractTask {
     }
 
     private void checkWatchEntry(WatchEntry entry, String fileName) {
-        if (task != null) {
-            plugin.getTaskManager().cancelTask(task);
-        }
+        Session session = entry.session;
+        session.generation.incrementAndGet();
 
-        AbstractPluginManager<P, ?> pluginManager = plugin.getPluginManager();
-        Optional<File> fileOptional = pluginManager.getPluginFile(entry.pluginId);
+        Optional<File> fileOptional = plugin.getPluginManager().getPluginFile(entry.pluginId);
         if (!fileOptional.isPresent()) {
-            send(WatchResult.FILE_DELETED, Template.template("plugin", entry.pluginId));
+            session.send(WatchResult.FILE_DELETED, Template.template("plugin", entry.pluginId));
 
-            fileNameToWatchEntryMap.remove(fileName);
+            fileNameToWatchEntryMap.remove(fileName, entry);
             pluginIdToWatchEntryMap.put(entry.pluginId, entry);
             return;
         }
 
-        String previousHash = entry.hash;
-        long previousTimestamp = entry.timestamp;
-        entry.update(fileOptional.get());
+        File file = fileOptional.get();
+        if (!file.getName().equals(fileName) && fileNameToWatchEntryMap.remove(fileName, entry)) {
+            fileNameToWatchEntryMap.put(file.getName(), entry); // The plugin's jar was replaced by another one
+        }
 
-        task = plugin.getTaskManager().runTaskLater(() -> {
-            if (entry.hash.equals(previousHash) || previousTimestamp < entry.timestamp - 1000L) {
-                send(WatchResult.CHANGE);
+        entry.observe(file.toPath());
+        scheduleStabilityCheck(session);
+    }
 
-                List<P> plugins = new ArrayList<>(fileNameToWatchEntryMap.size());
-                Map<String, WatchEntry> retainedWatchEntries = new HashMap<>();
-                for (WatchEntry oldEntry : fileNameToWatchEntryMap.values()) {
-                    Optional<P> pluginOptional = pluginManager.getPlugin(oldEntry.pluginId);
-                    if (!pluginOptional.isPresent()) continue;
+    /**
+     * (Re)schedules the stability check of the session, such that it only runs after no events arrived for the
+     * configured quiet period.
+     */
+    private void scheduleStabilityCheck(Session session) {
+        T previousTask = session.task;
+        if (previousTask != null) {
+            plugin.getTaskManager().cancelTask(previousTask);
+        }
 
-                    plugins.add(pluginOptional.get());
-                    retainedWatchEntries.put(oldEntry.pluginId, oldEntry);
-                }
+        int quietPeriod = plugin.getConfigResource().getConfig().getInt("watch-plugins.quiet-period-ticks");
+        session.task = plugin.getTaskManager().runTaskLater(() -> checkStability(session), Math.max(1, quietPeriod));
+    }
 
-                fileNameToWatchEntryMap.clear();
+    /**
+     * Checks whether the size and modification time of the session's files stayed the same during the quiet period,
+     * i.e. whether they have been written completely. Only then the files are hashed (asynchronously), and the
+     * session is reloaded iff any of the hashes changed.
+     */
+    private void checkStability(Session session) {
+        if (!sessions.contains(session)) return;
 
-                PluginResults<P> reloadResults = pluginManager.reloadPlugins(plugins);
-                reloadResults.sendTo(sender, MessageKey.RELOADPLUGIN_SUCCESS);
+        Map<WatchEntry, Path> entries = new HashMap<>();
+        for (Map.Entry<String, WatchEntry> mapEntry : fileNameToWatchEntryMap.entrySet()) {
+            WatchEntry entry = mapEntry.getValue();
+            if (entry.session != session) continue;
 
-                for (PluginResult<P> reloadResult : reloadResults) {
-                    if (!reloadResult.isSuccess()) continue;
+            Path path = basePath.resolve(mapEntry.getKey());
+            if (entry.observe(path)) {
+                scheduleStabilityCheck(session);
+                return;
+            }
+            entries.put(entry, path);
+        }
 
-                    P reloadedPlugin = reloadResult.getPlugin();
-                    String pluginId = pluginManager.getPluginId(reloadedPlugin);
+        int generation = session.generation.get();
+        plugin.getTaskManager().runTaskAsynchronously(() -> {
+            Map<WatchEntry, String> changedHashes = new HashMap<>();
+            entries.forEach((entry, path) -> {
+                String hash = FileUtils.getFastHash(path);
+                if (hash != null && !hash.equals(entry.hash)) changedHashes.put(entry, hash);
+            });
+            if (changedHashes.isEmpty()) return;
+
+            List<String> pluginIds = new ArrayList<>(entries.size());
+            entries.keySet().forEach(entry -> pluginIds.add(entry.pluginId));
+            prepareSession(plugin.getPluginManager(), session, generation, pluginIds, changedHashes);
+        });
+    }
 
-                    WatchEntry retainedEntry = retainedWatchEntries.get(pluginId);
-                    String pluginFileName = pluginManager.getPluginFile(reloadedPlugin).getName();
-                    fileNameToWatchEntryMap.put(pluginFileName, retainedEntry);
-                }
+    /**
+     * Prepares the new jars of the session off the main thread, and only reloads the session's plugins on the main
+     * thread if all jars passed. Failures are reported to the sender, leaving the old plugins running.
+     */
+    private <D extends ServerUtilsPluginDescription> void prepareSession(
+            AbstractPluginManager<P, D> pluginManager,
+            Session session,
+            int generation,
+            List<String> pluginIds,
+            Map<WatchEntry, String> changedHashes
+    ) {
+        PreparedPlugins<P, D> prepared = pluginManager.prepareReload(pluginIds);
+        // Queued, such that the reload doesn't interleave with the steps of a batch reload which is still running
+        pluginManager.queueOperation(() -> {
+            if (!sessions.contains(session) || session.generation.get() != generation) {
+                pluginManager.releasePreparedPlugins(prepared);
+            } else if (!prepared.isSuccess()) {
+                prepared.getFailure().sendTo(session.sender, MessageKey.RELOADPLUGIN_SUCCESS);
+            } else {
+                changedHashes.forEach((entry, hash) -> entry.hash = hash);
+                reloadSession(session, pluginManager, prepared);
             }
-        }, 10L);
+            return CompletableFuture.completedFuture(null);
+        });
     }
 
-    private void send(WatchResult result, Template... templates) {
-        result.sendTo(sender, templates);
-        if (sender.isPlayer()) {
-            result.sendTo(plugin.getChatProvider().getConsoleServerAudience(), templates);
+    private <D extends ServerUtilsPluginDescription> void reloadSession(
+            Session session,
+            AbstractPluginManager<P, D> pluginManager,
+            PreparedPlugins<P, D> prepared
+    ) {
+        session.send(WatchResult.CHANGE);
+
+        List<P> plugins = new ArrayList<>(session.pluginIds.size());
+        Map<String, WatchEntry> retainedWatchEntries = new HashMap<>();
+        for (WatchEntry oldEntry : fileNameToWatchEntryMap.values()) {
+            if (oldEntry.session != session) continue;
+
+            Optional<P> pluginOptional = pluginManager.getPlugin(oldEntry.pluginId);
+            if (!pluginOptional.isPresent()) continue;
+
+            plugins.add(pluginOptional.get());
+            retainedWatchEntries.put(oldEntry.pluginId, oldEntry);
+        }
+
+        fileNameToWatchEntryMap.values().removeIf(entry -> entry.session == session);
+
+        PluginResults<P> reloadResults = pluginManager.reloadPreparedPlugins(plugins, prepared);
+        reloadResults.sendTo(session.sender, MessageKey.RELOADPLUGIN_SUCCESS);
+
+        for (PluginResult<P> reloadResult : reloadResults) {
+            if (!reloadResult.isSuccess()) continue;
+
+            P reloadedPlugin = reloadResult.getPlugin();
+            String pluginId = pluginManager.getPluginId(reloadedPlugin);
+
+            WatchEntry retainedEntry = retainedWatchEntries.get(pluginId);
+            String pluginFileName = pluginManager.getPluginSourceFile(reloadedPlugin).getName();
+            fileNameToWatchEntryMap.put(pluginFileName, retainedEntry);
         }
+
+        if (fileNameToWatchEntryMap.values().stream().noneMatch(entry -> entry.session == session)
+                && pluginIdToWatchEntryMap.values().stream().noneMatch(entry -> entry.session == session)) {
+            endSession(session);
+        }
+    }
+
+    private void endSession(Session session) {
+        unsubscribe(session);
+        session.send(WatchResult.STOPPED);
+        sessionEndHandler.accept(session);
     }
 
     @Override
     public void cancel() {
         run.set(false);
-        try {
-            watchService.close();
-        } catch (IOException ex) {
-            ex.printStackTrace();
+
+        WatcherBackend backend = this.backend;
+        if (backend != null) backend.close();
+    }
+
+    /**
+     * A set of plugins watched on behalf of a sender, which are reloaded together upon a change.
+     */
+    public final class Session {
+
+        private final ServerUtilsAudience<?> sender;
+        private final List<String> pluginIds;
+        private final AtomicInteger generation = new AtomicInteger();
+        private volatile T task = null;
+
+        private Session(ServerUtilsAudience<?> sender) {
+            this.sender = sender;
+            this.pluginIds = new ArrayList<>();
+        }
+
+        public List<String> getPluginIds() {
+            return pluginIds;
+        }
+
+        private void send(WatchResult result, Template... templates) {
+            result.sendTo(sender, templates);
+            if (sender.isPlayer()) {
+                result.sendTo(plugin.getChatProvider().getConsoleServerAudience(), templates);
+            }
         }
     }
 
-    private static final class WatchEntry {
+    private final class WatchEntry {
 
         private final String pluginId;
-        private String hash = null;
-        private long timestamp = 0L;
+        private final Session session;
+        private volatile String hash = null;
+        private volatile long size = -1L;
+        private volatile long lastModified = -1L;
 
-        public WatchEntry(String pluginId) {
+        public WatchEntry(String pluginId, Session session) {
             this.pluginId = pluginId;
+            this.session = session;
         }
 
         public void update(File file) {
-            this.hash = FileUtils.getHash(file.toPath());
-            this.timestamp = System.currentTimeMillis();
+            this.hash = FileUtils.getFastHash(file.toPath());
+            observe(file.toPath());
+        }
+
+        /**
+         * Observes the size and modification time of the file.
+         * @return Whether either changed since the previous observation.
+         */
+        public boolean observe(Path path) {
+            long size;
+            long lastModified;
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                size = attributes.size();
+                lastModified = attributes.lastModifiedTime().toMillis();
+            } catch (IOException ex) {
+                return false; // Deletions are handled by their own event
+            }
+
+            boolean changed = size != this.size || lastModified != this.lastModified;
+            this.size = size;
+            this.lastModified = lastModified;
+            return changed;
         }
     }
 }
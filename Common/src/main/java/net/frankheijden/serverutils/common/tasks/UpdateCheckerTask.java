@@ -98,7 +98,7 @@ public class UpdateCheckerTask<U extends ServerUtilsPlugin<P, ?, ?, ?, ?>, P> im
             UpdateCheckerTask<?, P> task = new UpdateCheckerTask<>(ServerUtilsApp.getPlugin(), sender, true, true);
             AbstractPluginManager<P, ?> pluginManager = task.plugin.getPluginManager();
             File pluginFile = pluginManager.getPluginFile(pluginManager.getPluginId(task.plugin.getPlugin()))
-                    .orElse(pluginManager.getPluginFile(task.plugin.getPlugin()));
+                    .orElse(pluginManager.getPluginSourceFile(task.plugin.getPlugin()));
             task.downloadUpdaterAndReload(pluginFile);
         });
     }
@@ -257,7 +257,7 @@ public class UpdateCheckerTask<U extends ServerUtilsPlugin<P, ?, ?, ?, ?>, P> im
     }
 
     private File getPluginFile() {
-        return plugin.getPluginManager().getPluginFile(plugin.getPlugin());
+        return plugin.getPluginManager().getPluginSourceFile(plugin.getPlugin());
     }
 
     private void deletePlugin() {
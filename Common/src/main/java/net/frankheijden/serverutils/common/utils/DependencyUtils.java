@@ -1,115 +1,271 @@
 package net.frankheijden.serverutils.common.utils;
 
 import java.util.ArrayList;
-import java.util.Deque;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import net.frankheijden.serverutils.common.util.HashGraph;
 
 public class DependencyUtils {
 
+    private static final byte NOT_VISITED = 0;
+    private static final byte TEMPORARY = 1;
+    private static final byte PERMANENT = 2;
+
     private DependencyUtils() {}
 
     /**
      * Determines the topological order of a dependency map.
+     * Nodes are visited in iteration order of the map (and their dependencies in iteration order of their sets),
+     * using an explicit stack instead of recursion, such that deep dependency chains can't overflow the stack.
      * Adapted from https://github.com/VelocityPowered/Velocity.
-     * @throws IllegalStateException Iff circular dependency.
+     * @throws IllegalStateException Iff circular dependency, listing a cycle of every strongly connected component.
      */
-    @SuppressWarnings("UnstableApiUsage")
     public static <T> List<T> determineOrder(Map<T, Set<T>> dependencyMap) throws IllegalStateException {
-        HashGraph<T> dependencyGraph = new HashGraph<>();
-        for (T node : dependencyMap.keySet()) {
-            dependencyGraph.addNode(node);
-        }
-
-        for (Map.Entry<T, Set<T>> entry : dependencyMap.entrySet()) {
-            for (T dependency : entry.getValue()) {
-                dependencyGraph.putEdge(entry.getKey(), dependency);
+        IndexedGraph<T> graph = new IndexedGraph<>(dependencyMap);
+        int nodeCount = graph.nodes.size();
+
+        List<T> orderedList = new ArrayList<>(nodeCount);
+        byte[] marks = new byte[nodeCount];
+        int[] stack = new int[nodeCount];
+        int[] cursors = new int[nodeCount];
+
+        for (int root = 0; root < graph.keyCount; root++) {
+            if (marks[root] != NOT_VISITED) continue;
+
+            int depth = 0;
+            stack[0] = root;
+            cursors[0] = graph.start(root);
+            marks[root] = TEMPORARY;
+
+            while (depth >= 0) {
+                int node = stack[depth];
+                if (cursors[depth] < graph.end(node)) {
+                    int successor = graph.targets[cursors[depth]++];
+                    if (marks[successor] == NOT_VISITED) {
+                        depth++;
+                        stack[depth] = successor;
+                        cursors[depth] = graph.start(successor);
+                        marks[successor] = TEMPORARY;
+                    } else if (marks[successor] == TEMPORARY) {
+                        throw new IllegalStateException("Circular dependency detected: " + describeCycles(graph));
+                    }
+                } else {
+                    marks[node] = PERMANENT;
+                    orderedList.add(graph.nodes.get(node));
+                    depth--;
+                }
             }
         }
 
-        List<T> orderedList = new ArrayList<>(dependencyMap.size());
-        Map<T, Mark> marks = new HashMap<>(dependencyMap.size());
-
-        for (T node : dependencyGraph.nodes()) {
-            visitNode(dependencyGraph, node, marks, orderedList, new LinkedList<>());
-        }
-
         return orderedList;
     }
 
-    @SuppressWarnings("UnstableApiUsage")
-    private static <T> void visitNode(
-            HashGraph<T> dependencyGraph,
-            T node,
-            Map<T, Mark> marks,
-            List<T> orderedList,
-            Deque<T> currentIteration
-    ) throws IllegalStateException {
-        Mark mark = marks.getOrDefault(node, Mark.NOT_VISITED);
-        if (mark == Mark.PERMANENT) {
-            return;
-        } else if (mark == Mark.TEMPORARY) {
-            currentIteration.addLast(node);
-
-            StringBuilder sb = new StringBuilder();
-            for (T currentNode : currentIteration) {
-                sb.append(" -> ").append(currentNode);
+    /**
+     * Determines the layers ("waves") of a dependency map, in which the nodes of every layer only depend on nodes
+     * of earlier layers. The nodes within a layer are thus mutually independent, and keep their topological order.
+     * @throws IllegalStateException Iff circular dependency.
+     */
+    public static <T> List<List<T>> determineLayers(Map<T, Set<T>> dependencyMap) throws IllegalStateException {
+        List<T> orderedList = determineOrder(dependencyMap);
+        Map<T, Integer> layerIndices = new HashMap<>(orderedList.size() * 2);
+        List<List<T>> layers = new ArrayList<>();
+
+        for (T node : orderedList) {
+            int layerIndex = 0;
+            for (T dependency : dependencyMap.getOrDefault(node, Collections.emptySet())) {
+                layerIndex = Math.max(layerIndex, layerIndices.get(dependency) + 1);
             }
 
-            throw new IllegalStateException("Circular dependency detected: " + sb.substring(4));
+            layerIndices.put(node, layerIndex);
+            if (layerIndex == layers.size()) layers.add(new ArrayList<>());
+            layers.get(layerIndex).add(node);
         }
 
-        currentIteration.addLast(node);
-        marks.put(node, Mark.TEMPORARY);
+        return layers;
+    }
 
-        for (T successorNode : dependencyGraph.successors(node)) {
-            visitNode(dependencyGraph, successorNode, marks, orderedList, currentIteration);
+    /**
+     * Finds all strongly connected components which contain a cycle (using Tarjan's algorithm, iteratively),
+     * and describes a cycle through each of them, e.g. "A -> B -> A, C -> C".
+     */
+    private static <T> String describeCycles(IndexedGraph<T> graph) {
+        int nodeCount = graph.nodes.size();
+        int[] indices = new int[nodeCount];
+        int[] lowLinks = new int[nodeCount];
+        int[] components = new int[nodeCount];
+        boolean[] onStack = new boolean[nodeCount];
+        int[] componentStack = new int[nodeCount];
+        int[] callStack = new int[nodeCount];
+        int[] cursors = new int[nodeCount];
+        Arrays.fill(indices, -1);
+        Arrays.fill(components, -1);
+
+        List<Integer> cyclicComponentRoots = new ArrayList<>();
+        int counter = 0;
+        int componentCount = 0;
+        int componentStackSize = 0;
+
+        for (int root = 0; root < nodeCount; root++) {
+            if (indices[root] != -1) continue;
+
+            int depth = 0;
+            callStack[0] = root;
+            cursors[0] = graph.start(root);
+            indices[root] = lowLinks[root] = counter++;
+            componentStack[componentStackSize++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                int node = callStack[depth];
+                if (cursors[depth] < graph.end(node)) {
+                    int successor = graph.targets[cursors[depth]++];
+                    if (indices[successor] == -1) {
+                        depth++;
+                        callStack[depth] = successor;
+                        cursors[depth] = graph.start(successor);
+                        indices[successor] = lowLinks[successor] = counter++;
+                        componentStack[componentStackSize++] = successor;
+                        onStack[successor] = true;
+                    } else if (onStack[successor]) {
+                        lowLinks[node] = Math.min(lowLinks[node], indices[successor]);
+                    }
+                    continue;
+                }
+
+                if (lowLinks[node] == indices[node]) {
+                    int componentRoot = node;
+                    int size = 0;
+                    int member;
+                    do {
+                        member = componentStack[--componentStackSize];
+                        onStack[member] = false;
+                        components[member] = componentCount;
+                        componentRoot = Math.min(componentRoot, member);
+                        size++;
+                    } while (member != node);
+
+                    if (size > 1 || graph.hasEdge(node, node)) {
+                        cyclicComponentRoots.add(componentRoot);
+                    }
+                    componentCount++;
+                }
+
+                depth--;
+                if (depth >= 0) {
+                    int parent = callStack[depth];
+                    lowLinks[parent] = Math.min(lowLinks[parent], lowLinks[node]);
+                }
+            }
         }
 
-        marks.put(node, Mark.PERMANENT);
-        currentIteration.removeLast();
-        orderedList.add(node);
+        Collections.sort(cyclicComponentRoots);
+        StringBuilder sb = new StringBuilder();
+        for (int componentRoot : cyclicComponentRoots) {
+            sb.append(", ");
+            for (int node : findCycle(graph, components, componentRoot)) {
+                sb.append(graph.nodes.get(node)).append(" -> ");
+            }
+            sb.append(graph.nodes.get(componentRoot));
+        }
+        return sb.substring(2);
     }
 
-    private enum Mark {
-        NOT_VISITED,
-        TEMPORARY,
-        PERMANENT
+    /**
+     * Finds the shortest cycle through the given node within its component, excluding the closing node.
+     */
+    private static int[] findCycle(IndexedGraph<?> graph, int[] components, int start) {
+        int[] parents = new int[components.length];
+        Arrays.fill(parents, -1);
+        int[] queue = new int[components.length];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+
+        while (head < tail) {
+            int node = queue[head++];
+            for (int i = graph.start(node); i < graph.end(node); i++) {
+                int successor = graph.targets[i];
+                if (components[successor] != components[start]) continue;
+
+                if (successor == start) {
+                    List<Integer> path = new ArrayList<>();
+                    for (int n = node; n != start; n = parents[n]) {
+                        path.add(n);
+                    }
+                    path.add(start);
+
+                    int[] cycle = new int[path.size()];
+                    for (int j = 0; j < cycle.length; j++) {
+                        cycle[j] = path.get(cycle.length - 1 - j);
+                    }
+                    return cycle;
+                } else if (parents[successor] == -1) {
+                    parents[successor] = node;
+                    queue[tail++] = successor;
+                }
+            }
+        }
+        return new int[]{ start };
     }
-}
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
 
+    /**
+     * A compact adjacency representation of a dependency map, in which the keys of the map take the first indices,
+     * followed by dependencies which are not a key themselves (and thus have no dependencies).
+     */
+    private static final class IndexedGraph<T> {
+
+        private final List<T> nodes;
+        private final int keyCount;
+        private final int[] offsets;
+        private final int[] targets;
+
+        private IndexedGraph(Map<T, Set<T>> dependencyMap) {
+            this.keyCount = dependencyMap.size();
+            this.nodes = new ArrayList<>(keyCount);
+            this.offsets = new int[keyCount + 1];
+
+            Map<T, Integer> indices = new HashMap<>(keyCount * 2);
+            int edgeCount = 0;
+            for (Map.Entry<T, Set<T>> entry : dependencyMap.entrySet()) {
+                indices.put(entry.getKey(), nodes.size());
+                nodes.add(entry.getKey());
+                edgeCount += entry.getValue().size();
+            }
 
+            this.targets = new int[edgeCount];
+            int node = 0;
+            int edge = 0;
+            for (Map.Entry<T, Set<T>> entry : dependencyMap.entrySet()) {
+                offsets[node++] = edge;
+                for (T dependency : entry.getValue()) {
+                    Integer index = indices.get(dependency);
+                    if (index == null) {
+                        index = nodes.size();
+                        indices.put(dependency, index);
+                        nodes.add(dependency);
+                    }
+                    targets[edge++] = index;
+                }
+            }
+            offsets[keyCount] = edge;
+        }
 
+        private int start(int node) {
+            return node < keyCount ? offsets[node] : 0;
+        }
 
+        private int end(int node) {
+            return node < keyCount ? offsets[node + 1] : 0;
+        }
 
+        private boolean hasEdge(int from, int to) {
+            for (int i = start(from); i < end(from); i++) {
+                if (targets[i] == to) return true;
+            }
+            return false;
+        }
+    }
+}
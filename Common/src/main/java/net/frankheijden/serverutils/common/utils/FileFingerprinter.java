@@ -0,0 +1,338 @@
+package net.frankheijden.serverutils.common.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Computes fingerprints of files by streaming them through a reused direct buffer, such that files are never held
+ * in memory as a whole. Fingerprints are memoized by (path, size, last modified, file key), such that unchanged files
+ * are never read again.
+ */
+public class FileFingerprinter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(
+            () -> ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+    );
+
+    private final Map<CacheKey, CacheEntry> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+
+    public FileFingerprinter() {
+        this.cache = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Retrieves the fingerprint of the file at the given path, reading it only if it changed since it was last
+     * fingerprinted with the given algorithm.
+     * @return The fingerprint as hex string, or null if the file couldn't be read.
+     */
+    public String getFingerprint(Path path, Algorithm algorithm) {
+        BasicFileAttributes attributes = readAttributes(path);
+        if (attributes == null) return null;
+
+        CacheKey key = new CacheKey(path.toAbsolutePath().normalize(), algorithm);
+        CacheEntry entry = cache.get(key);
+        if (entry != null && entry.matches(attributes)) {
+            hits.increment();
+            return entry.fingerprint;
+        }
+
+        misses.increment();
+        String fingerprint = compute(path, algorithm);
+        if (fingerprint == null) {
+            cache.remove(key);
+            return null;
+        }
+
+        // Only memoize if the file didn't change while it was being read
+        BasicFileAttributes attributesAfter = readAttributes(path);
+        CacheEntry newEntry = new CacheEntry(attributes, fingerprint);
+        if (attributesAfter != null && newEntry.matches(attributesAfter)) {
+            cache.put(key, newEntry);
+        } else {
+            cache.remove(key);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Computes the fingerprint of the file at the given path without memoizing it, e.g. for temporary files.
+     * @return The fingerprint as hex string, or null if the file couldn't be read.
+     */
+    public String compute(Path path, Algorithm algorithm) {
+        ByteBuffer buffer = buffers.get();
+        buffer.clear();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Hasher hasher = algorithm.newHasher();
+            int read;
+            while ((read = channel.read(buffer)) != -1) {
+                bytesRead.add(read);
+                if (buffer.hasRemaining()) continue;
+
+                buffer.flip();
+                hasher.update(buffer);
+                buffer.compact();
+            }
+
+            buffer.flip();
+            return hasher.finish(buffer);
+        } catch (IOException ex) {
+            return null;
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Removes the memoized fingerprints of the file at the given path.
+     */
+    public void invalidate(Path path) {
+        Path normalizedPath = path.toAbsolutePath().normalize();
+        cache.keySet().removeIf(key -> key.path.equals(normalizedPath));
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Retrieves the fraction of lookups which were served from the cache, or 0 if there were none.
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    private static BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    public enum Algorithm {
+
+        /**
+         * A cryptographic digest, for when fingerprints need to be unique (e.g. to name files by their contents).
+         */
+        MD5 {
+            @Override
+            Hasher newHasher() {
+                return new DigestHasher("MD5");
+            }
+        },
+
+        /**
+         * A fast 64-bit non-cryptographic hash, for detecting changes.
+         */
+        XXHASH64 {
+            @Override
+            Hasher newHasher() {
+                return new XxHash64Hasher();
+            }
+        },
+        ;
+
+        abstract Hasher newHasher();
+    }
+
+    /**
+     * Hashes a stream of bytes, passed as buffers in read mode.
+     */
+    interface Hasher {
+
+        /**
+         * Consumes as many bytes of the buffer as possible, leaving the remainder to be passed again.
+         */
+        void update(ByteBuffer buffer);
+
+        /**
+         * Consumes all remaining bytes of the buffer, and completes the hash.
+         */
+        String finish(ByteBuffer buffer);
+    }
+
+    private static final class DigestHasher implements Hasher {
+
+        private final MessageDigest digest;
+
+        private DigestHasher(String algorithm) {
+            try {
+                this.digest = MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        @Override
+        public void update(ByteBuffer buffer) {
+            digest.update(buffer);
+        }
+
+        @Override
+        public String finish(ByteBuffer buffer) {
+            digest.update(buffer);
+            return StringUtils.bytesToHex(digest.digest());
+        }
+    }
+
+    /**
+     * A streaming implementation of the 64-bit xxHash with seed 0.
+     */
+    static final class XxHash64Hasher implements Hasher {
+
+        private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+        private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+        private static final long PRIME_3 = 0x165667B19E3779F9L;
+        private static final long PRIME_4 = 0x85EBCA77C2B2AE63L;
+        private static final long PRIME_5 = 0x27D4EB2F165667C5L;
+        private static final int STRIPE_SIZE = 32;
+
+        private long v1 = PRIME_1 + PRIME_2;
+        private long v2 = PRIME_2;
+        private long v3 = 0;
+        private long v4 = -PRIME_1;
+        private long length = 0;
+
+        @Override
+        public void update(ByteBuffer buffer) {
+            ByteOrder order = buffer.order();
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.remaining() >= STRIPE_SIZE) {
+                v1 = round(v1, buffer.getLong());
+                v2 = round(v2, buffer.getLong());
+                v3 = round(v3, buffer.getLong());
+                v4 = round(v4, buffer.getLong());
+                length += STRIPE_SIZE;
+            }
+            buffer.order(order);
+        }
+
+        @Override
+        public String finish(ByteBuffer buffer) {
+            update(buffer);
+            ByteOrder order = buffer.order();
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            long hash;
+            if (length >= STRIPE_SIZE) {
+                hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12)
+                        + Long.rotateLeft(v4, 18);
+                hash = mergeRound(hash, v1);
+                hash = mergeRound(hash, v2);
+                hash = mergeRound(hash, v3);
+                hash = mergeRound(hash, v4);
+            } else {
+                hash = PRIME_5;
+            }
+            hash += length + buffer.remaining();
+
+            while (buffer.remaining() >= 8) {
+                hash ^= round(0, buffer.getLong());
+                hash = Long.rotateLeft(hash, 27) * PRIME_1 + PRIME_4;
+            }
+            if (buffer.remaining() >= 4) {
+                hash ^= (buffer.getInt() & 0xFFFFFFFFL) * PRIME_1;
+                hash = Long.rotateLeft(hash, 23) * PRIME_2 + PRIME_3;
+            }
+            while (buffer.hasRemaining()) {
+                hash ^= (buffer.get() & 0xFFL) * PRIME_5;
+                hash = Long.rotateLeft(hash, 11) * PRIME_1;
+            }
+            buffer.order(order);
+
+            hash ^= hash >>> 33;
+            hash *= PRIME_2;
+            hash ^= hash >>> 29;
+            hash *= PRIME_3;
+            hash ^= hash >>> 32;
+            return String.format("%016x", hash);
+        }
+
+        private static long round(long acc, long input) {
+            acc += input * PRIME_2;
+            acc = Long.rotateLeft(acc, 31);
+            return acc * PRIME_1;
+        }
+
+        private static long mergeRound(long acc, long value) {
+            acc ^= round(0, value);
+            return acc * PRIME_1 + PRIME_4;
+        }
+    }
+
+    private static final class CacheKey {
+
+        private final Path path;
+        private final Algorithm algorithm;
+
+        private CacheKey(Path path, Algorithm algorithm) {
+            this.path = path;
+            this.algorithm = algorithm;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof CacheKey)) return false;
+            CacheKey other = (CacheKey) obj;
+            return path.equals(other.path) && algorithm == other.algorithm;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * path.hashCode() + algorithm.hashCode();
+        }
+    }
+
+    private static final class CacheEntry {
+
+        private final long size;
+        private final long lastModified;
+        private final Object fileKey;
+        private final String fingerprint;
+
+        private CacheEntry(BasicFileAttributes attributes, String fingerprint) {
+            this.size = attributes.size();
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+            this.fileKey = attributes.fileKey();
+            this.fingerprint = fingerprint;
+        }
+
+        private boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size()
+                    && lastModified == attributes.lastModifiedTime().toMillis()
+                    && Objects.equals(fileKey, attributes.fileKey());
+        }
+    }
+}
@@ -10,11 +10,11 @@ import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
 public class FileUtils {
 
+    private static final FileFingerprinter fingerprinter = new FileFingerprinter();
+
     private FileUtils() {}
 
     /**
@@ -36,19 +36,49 @@ public class FileUtils {
         return true;
     }
 
+    /**
+     * Reads a file without retaining its contents, such that subsequent reads are served from the OS page cache.
+     * @param path The path
+     * @return Whether the file could be read
+     */
+    public static boolean preload(Path path) {
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] buffer = new byte[64 * 1024];
+            while (in.read(buffer) != -1) {
+                // Discard
+            }
+            return true;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Retrieves the fingerprinter which memoizes the hashes of files, e.g. to inspect its cache hit rate.
+     */
+    public static FileFingerprinter getFingerprinter() {
+        return fingerprinter;
+    }
+
     /**
      * Get the Hash of a file at given path.
+     * The hash is cryptographic, and only computed again if the file changed since it was last hashed.
      *
      * @param path The path
      * @return The file's hash
      */
     public static String getHash(Path path) {
-        byte[] digest;
-        try {
-            digest = MessageDigest.getInstance("MD5").digest(Files.readAllBytes(path));
-        } catch (IOException | NoSuchAlgorithmException ex) {
-            return null;
-        }
-        return StringUtils.bytesToHex(digest);
+        return fingerprinter.getFingerprint(path, FileFingerprinter.Algorithm.MD5);
+    }
+
+    /**
+     * Get a fast, non-cryptographic hash of a file at given path, which is suitable to detect changes.
+     * The hash is only computed again if the file changed since it was last hashed.
+     *
+     * @param path The path
+     * @return The file's hash
+     */
+    public static String getFastHash(Path path) {
+        return fingerprinter.getFingerprint(path, FileFingerprinter.Algorithm.XXHASH64);
     }
 }
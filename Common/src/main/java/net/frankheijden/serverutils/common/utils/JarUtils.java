@@ -0,0 +1,322 @@
+package net.frankheijden.serverutils.common.utils;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Enumeration;
+import java.util.Optional;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Reads single entries from jars and verifies jars by walking the zip central directory directly, instead of
+ * constructing a {@link JarFile} (and with it the manifest, signature and native zip state) for every jar.
+ * Archives the reader does not understand (zip64, encryption, exotic compression) are read through {@link JarFile}.
+ */
+public class JarUtils {
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int CEN_SIGNATURE = 0x02014b50;
+    private static final int CEN_SIZE = 46;
+    private static final int LOC_SIGNATURE = 0x04034b50;
+    private static final int LOC_SIZE = 30;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int FLAG_ENCRYPTED = 1;
+    private static final int MAX_ENTRY_SIZE = 16 * 1024 * 1024;
+    private static final String CLASS_EXTENSION = ".class";
+
+    private JarUtils() {}
+
+    /**
+     * Reads the first entry of the given names that exists in the jar, in order of the given names.
+     * @param file The jar file.
+     * @param names The entry names, in order of preference.
+     * @return The uncompressed contents of the entry, or empty if none of the entries exist.
+     * @throws IOException Iff the jar could not be read.
+     */
+    public static Optional<byte[]> readEntry(File file, String... names) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return readEntry(channel, names);
+        } catch (UnsupportedArchiveException ex) {
+            return readEntryFromJarFile(file, names);
+        }
+    }
+
+    /**
+     * Reads the first entry of the given names that exists in the jar, using {@link JarFile}.
+     */
+    public static Optional<byte[]> readEntryFromJarFile(File file, String... names) throws IOException {
+        try (JarFile jar = new JarFile(file)) {
+            for (String name : names) {
+                JarEntry entry = jar.getJarEntry(name);
+                if (entry == null) continue;
+
+                try (InputStream in = jar.getInputStream(entry)) {
+                    return Optional.of(in.readAllBytes());
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Verifies that the jar is complete, i.e. that its central directory can be read in full and all entries start
+     * before it, and that it contains all given entries.
+     * @param file The jar file.
+     * @param names The names of the entries the jar must contain.
+     * @return Whether the jar contains all given entries.
+     * @throws IOException Iff the jar could not be read, or is incomplete.
+     */
+    public static boolean verify(File file, String... names) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return verify(channel, names);
+        } catch (UnsupportedArchiveException ex) {
+            return verifyWithJarFile(file, names);
+        }
+    }
+
+    /**
+     * Verifies that the jar contains all given entries, using {@link JarFile}.
+     */
+    public static boolean verifyWithJarFile(File file, String... names) throws IOException {
+        try (JarFile jar = new JarFile(file)) {
+            for (String name : names) {
+                if (jar.getJarEntry(name) == null) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Loads (without initializing) all classes of the given jar through the given classloader, such that they have
+     * been read, defined and verified before they are first used. Classes which can't be loaded, e.g. because they
+     * refer to an optional dependency which is absent, are skipped.
+     * @return The amount of classes loaded.
+     * @throws IOException Iff the jar could not be read.
+     */
+    public static int preloadClasses(File file, ClassLoader classLoader) throws IOException {
+        int count = 0;
+        try (JarFile jar = new JarFile(file)) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (!name.endsWith(CLASS_EXTENSION) || name.startsWith("META-INF/") || name.endsWith("-info.class")) {
+                    continue;
+                }
+
+                String className = name.substring(0, name.length() - CLASS_EXTENSION.length()).replace('/', '.');
+                try {
+                    Class.forName(className, false, classLoader);
+                    count++;
+                } catch (ClassNotFoundException | LinkageError ignored) {
+                    //
+                }
+            }
+        }
+        return count;
+    }
+
+    private static Optional<byte[]> readEntry(FileChannel channel, String[] names) throws IOException {
+        CentralDirectory directory = readCentralDirectory(channel);
+        ByteBuffer central = directory.buffer;
+        byte[][] nameBytes = getNameBytes(names);
+
+        int bestMatch = names.length;
+        int bestPosition = -1;
+        int position = 0;
+        for (int entry = 0; entry < directory.entryCount; entry++) {
+            int nameLength = checkEntry(central, position);
+            for (int i = 0; i < bestMatch; i++) {
+                if (nameEquals(central, position + CEN_SIZE, nameLength, nameBytes[i])) {
+                    bestMatch = i;
+                    bestPosition = position;
+                    break;
+                }
+            }
+            if (bestMatch == 0) break;
+
+            position = nextEntry(central, position);
+        }
+
+        if (bestPosition == -1) return Optional.empty();
+        return Optional.of(readEntryData(channel, central, bestPosition));
+    }
+
+    private static boolean verify(FileChannel channel, String[] names) throws IOException {
+        CentralDirectory directory = readCentralDirectory(channel);
+        ByteBuffer central = directory.buffer;
+        byte[][] nameBytes = getNameBytes(names);
+
+        boolean[] found = new boolean[names.length];
+        int position = 0;
+        for (int entry = 0; entry < directory.entryCount; entry++) {
+            int nameLength = checkEntry(central, position);
+            long compressedSize = central.getInt(position + 20) & 0xFFFFFFFFL;
+            long localOffset = central.getInt(position + 42) & 0xFFFFFFFFL;
+            if (compressedSize == 0xFFFFFFFFL || localOffset == 0xFFFFFFFFL) {
+                throw new UnsupportedArchiveException(); // zip64
+            }
+            if (localOffset + LOC_SIZE + compressedSize > directory.offset) {
+                throw new ZipException("Entry " + entry + " overlaps the central directory");
+            }
+
+            for (int i = 0; i < names.length; i++) {
+                if (nameEquals(central, position + CEN_SIZE, nameLength, nameBytes[i])) found[i] = true;
+            }
+            position = nextEntry(central, position);
+        }
+
+        for (boolean b : found) {
+            if (!b) return false;
+        }
+        return true;
+    }
+
+    private static CentralDirectory readCentralDirectory(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < EOCD_SIZE) throw new UnsupportedArchiveException();
+
+        // The end of central directory record is at the end of the file, followed by an optional comment
+        int tailSize = (int) Math.min(fileSize, EOCD_SIZE + MAX_COMMENT_SIZE);
+        ByteBuffer tail = read(channel, fileSize - tailSize, tailSize);
+        int eocd = -1;
+        for (int i = tailSize - EOCD_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == EOCD_SIGNATURE && i + EOCD_SIZE + (tail.getShort(i + 20) & 0xFFFF) == tailSize) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd == -1) throw new UnsupportedArchiveException();
+
+        int entryCount = tail.getShort(eocd + 10) & 0xFFFF;
+        long centralSize = tail.getInt(eocd + 12) & 0xFFFFFFFFL;
+        long centralOffset = tail.getInt(eocd + 16) & 0xFFFFFFFFL;
+        if (entryCount == 0xFFFF || centralSize == 0xFFFFFFFFL || centralOffset == 0xFFFFFFFFL) {
+            throw new UnsupportedArchiveException(); // zip64
+        }
+        if (centralOffset + centralSize > fileSize - tailSize + eocd) throw new UnsupportedArchiveException();
+
+        return new CentralDirectory(read(channel, centralOffset, (int) centralSize), entryCount, centralOffset);
+    }
+
+    /**
+     * Checks the bounds of the central directory entry at the given position.
+     * @return The length of the entry's name.
+     */
+    private static int checkEntry(ByteBuffer central, int position) throws IOException {
+        if (position + CEN_SIZE > central.limit() || central.getInt(position) != CEN_SIGNATURE) {
+            throw new UnsupportedArchiveException();
+        }
+
+        int nameLength = central.getShort(position + 28) & 0xFFFF;
+        if (position + CEN_SIZE + nameLength > central.limit()) throw new UnsupportedArchiveException();
+        return nameLength;
+    }
+
+    private static int nextEntry(ByteBuffer central, int position) {
+        int nameLength = central.getShort(position + 28) & 0xFFFF;
+        int extraLength = central.getShort(position + 30) & 0xFFFF;
+        int commentLength = central.getShort(position + 32) & 0xFFFF;
+        return position + CEN_SIZE + nameLength + extraLength + commentLength;
+    }
+
+    private static byte[][] getNameBytes(String[] names) {
+        byte[][] nameBytes = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            nameBytes[i] = names[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return nameBytes;
+    }
+
+    private static byte[] readEntryData(FileChannel channel, ByteBuffer central, int position) throws IOException {
+        int flags = central.getShort(position + 8) & 0xFFFF;
+        int method = central.getShort(position + 10) & 0xFFFF;
+        long compressedSize = central.getInt(position + 20) & 0xFFFFFFFFL;
+        long size = central.getInt(position + 24) & 0xFFFFFFFFL;
+        long localOffset = central.getInt(position + 42) & 0xFFFFFFFFL;
+        if ((flags & FLAG_ENCRYPTED) != 0 || compressedSize > MAX_ENTRY_SIZE || size > MAX_ENTRY_SIZE) {
+            throw new UnsupportedArchiveException();
+        }
+
+        ByteBuffer local = read(channel, localOffset, LOC_SIZE);
+        if (local.getInt(0) != LOC_SIGNATURE) throw new UnsupportedArchiveException();
+        long dataOffset = localOffset + LOC_SIZE + (local.getShort(26) & 0xFFFF) + (local.getShort(28) & 0xFFFF);
+        ByteBuffer data = read(channel, dataOffset, (int) compressedSize);
+
+        if (method == METHOD_STORED) {
+            if (compressedSize != size) throw new UnsupportedArchiveException();
+            return data.array();
+        } else if (method != METHOD_DEFLATED) {
+            throw new UnsupportedArchiveException();
+        }
+
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data.array());
+            byte[] bytes = new byte[(int) size];
+            int length = 0;
+            while (length < bytes.length) {
+                int inflated = inflater.inflate(bytes, length, bytes.length - length);
+                if (inflated == 0) break; // All input was supplied up front, so no progress means truncated data
+                length += inflated;
+            }
+            if (length != bytes.length) throw new UnsupportedArchiveException();
+            return bytes;
+        } catch (DataFormatException ex) {
+            throw new UnsupportedArchiveException();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static boolean nameEquals(ByteBuffer buffer, int offset, int length, byte[] name) {
+        if (length != name.length) return false;
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(offset + i) != name[i]) return false;
+        }
+        return true;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new EOFException();
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static final class CentralDirectory {
+
+        private final ByteBuffer buffer;
+        private final int entryCount;
+        private final long offset;
+
+        private CentralDirectory(ByteBuffer buffer, int entryCount, long offset) {
+            this.buffer = buffer;
+            this.entryCount = entryCount;
+            this.offset = offset;
+        }
+    }
+
+    private static final class UnsupportedArchiveException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private UnsupportedArchiveException() {
+            super("Archive must be read through JarFile");
+        }
+    }
+}
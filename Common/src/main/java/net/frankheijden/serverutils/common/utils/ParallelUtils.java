@@ -0,0 +1,110 @@
+package net.frankheijden.serverutils.common.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * Runs independent work items on a bounded fork-join pool, which is shared by all of ServerUtils.
+ */
+public class ParallelUtils {
+
+    private static final int MAX_PARALLELISM = 8;
+    private static final int LEAF_SIZE = 2;
+
+    private static ForkJoinPool pool = null;
+
+    private ParallelUtils() {}
+
+    /**
+     * Retrieves the shared pool, creating it on first use.
+     * Its threads are daemon threads, and idle workers are released by the pool after a while.
+     */
+    public static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            int parallelism = Math.max(1, Math.min(MAX_PARALLELISM, Runtime.getRuntime().availableProcessors()));
+            pool = new ForkJoinPool(parallelism, p -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                thread.setName("ServerUtils-Worker-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+        }
+        return pool;
+    }
+
+    /**
+     * Applies the function to all items in parallel and returns the results in order of the items.
+     * Small inputs are processed on the calling thread, as forking would only add overhead.
+     * If any function throws, the exception of the first failing item is rethrown after all items completed.
+     */
+    public static <T, R> List<R> map(List<T> items, Function<? super T, ? extends R> function) {
+        Object[] results = new Object[items.size()];
+        RuntimeException[] exceptions = new RuntimeException[items.size()];
+
+        MapAction<T> action = new MapAction<>(items, function, results, exceptions, 0, items.size());
+        if (items.size() <= LEAF_SIZE) {
+            action.compute();
+        } else {
+            getPool().invoke(action);
+        }
+
+        for (RuntimeException ex : exceptions) {
+            if (ex != null) throw ex;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<R> resultList = (List<R>) new ArrayList<>(Arrays.asList(results));
+        return resultList;
+    }
+
+    private static final class MapAction<T> extends RecursiveAction {
+
+        private final List<T> items;
+        private final Function<? super T, ?> function;
+        private final Object[] results;
+        private final RuntimeException[] exceptions;
+        private final int from;
+        private final int to;
+
+        private MapAction(
+                List<T> items,
+                Function<? super T, ?> function,
+                Object[] results,
+                RuntimeException[] exceptions,
+                int from,
+                int to
+        ) {
+            this.items = items;
+            this.function = function;
+            this.results = results;
+            this.exceptions = exceptions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to; i++) {
+                    try {
+                        results[i] = function.apply(items.get(i));
+                    } catch (RuntimeException ex) {
+                        exceptions[i] = ex;
+                    }
+                }
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(
+                    new MapAction<>(items, function, results, exceptions, from, mid),
+                    new MapAction<>(items, function, results, exceptions, mid, to)
+            );
+        }
+    }
+}
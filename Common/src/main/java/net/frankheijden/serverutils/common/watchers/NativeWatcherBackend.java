@@ -0,0 +1,76 @@
+package net.frankheijden.serverutils.common.watchers;
+
+import com.sun.nio.file.SensitivityWatchEventModifier;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Watches a folder using the file system's {@link WatchService}, i.e. inotify on Linux.
+ */
+public class NativeWatcherBackend implements WatcherBackend {
+
+    private static final WatchEvent.Kind<?>[] EVENTS = new WatchEvent.Kind[]{
+        StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_MODIFY,
+        StandardWatchEventKinds.ENTRY_DELETE
+    };
+
+    private final Path folder;
+    private final WatchService watchService;
+
+    /**
+     * Constructs a new NativeWatcherBackend and registers the given folder.
+     */
+    public NativeWatcherBackend(Path folder) throws IOException {
+        this.folder = folder;
+        this.watchService = folder.getFileSystem().newWatchService();
+        try {
+            register();
+        } catch (IOException | RuntimeException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    private void register() throws IOException {
+        try {
+            folder.register(watchService, EVENTS, SensitivityWatchEventModifier.HIGH);
+        } catch (LinkageError | UnsupportedOperationException ex) {
+            // The sensitivity modifier is specific to the JDK's polling implementation
+            folder.register(watchService, EVENTS);
+        }
+    }
+
+    @Override
+    public List<Path> take() throws InterruptedException {
+        WatchKey key;
+        try {
+            key = watchService.take();
+        } catch (ClosedWatchServiceException ex) {
+            return null;
+        }
+
+        List<Path> paths = new ArrayList<>();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) continue;
+            paths.add(folder.resolve((Path) event.context()));
+        }
+        return key.reset() ? paths : null;
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package net.frankheijden.serverutils.common.watchers;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Watches a folder by periodically comparing snapshots of its jars, for file systems on which native watching does
+ * not work, e.g. bind mounts and network file systems. A snapshot is kept as sorted parallel arrays of names, sizes
+ * and modification times, such that creations and deletions can be found by merging two listings.
+ * To bound the cost of a single scan, at most a fixed number of files is checked for modifications per scan, the
+ * remaining files are checked in subsequent scans.
+ */
+public class PollingWatcherBackend implements WatcherBackend {
+
+    private static final String JAR_EXTENSION = ".jar";
+
+    private final Path folder;
+    private final long intervalMillis;
+    private final int maxFilesPerScan;
+    private final Object lock = new Object();
+
+    private String[] names;
+    private long[] sizes;
+    private long[] lastModified;
+    private int cursor = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * Constructs a new PollingWatcherBackend and takes an initial snapshot of the given folder.
+     */
+    public PollingWatcherBackend(Path folder, long intervalMillis, int maxFilesPerScan) throws IOException {
+        this.folder = folder;
+        this.intervalMillis = Math.max(1, intervalMillis);
+        this.maxFilesPerScan = Math.max(1, maxFilesPerScan);
+
+        this.names = list();
+        this.sizes = new long[names.length];
+        this.lastModified = new long[names.length];
+        for (int i = 0; i < names.length; i++) {
+            BasicFileAttributes attributes = readAttributes(names[i]);
+            if (attributes == null) continue;
+            sizes[i] = attributes.size();
+            lastModified[i] = attributes.lastModifiedTime().toMillis();
+        }
+    }
+
+    @Override
+    public List<Path> take() throws IOException, InterruptedException {
+        while (true) {
+            synchronized (lock) {
+                if (!closed) lock.wait(intervalMillis);
+            }
+            if (closed || !Files.isDirectory(folder)) return null;
+
+            List<Path> paths = scan();
+            if (!paths.isEmpty()) return paths;
+        }
+    }
+
+    /**
+     * Compares the folder against the current snapshot and updates the snapshot.
+     * @return The files which have been created, modified or deleted since the previous scan.
+     */
+    List<Path> scan() throws IOException {
+        String[] newNames = list();
+        long[] newSizes = new long[newNames.length];
+        long[] newLastModified = new long[newNames.length];
+        boolean[] existing = new boolean[newNames.length];
+        List<Path> paths = new ArrayList<>();
+
+        // Merge both sorted listings, carrying over the snapshot of files which still exist
+        int i = 0;
+        int j = 0;
+        while (i < names.length || j < newNames.length) {
+            int cmp;
+            if (i == names.length) {
+                cmp = 1;
+            } else if (j == newNames.length) {
+                cmp = -1;
+            } else {
+                cmp = names[i].compareTo(newNames[j]);
+            }
+
+            if (cmp < 0) {
+                paths.add(folder.resolve(names[i++]));
+            } else if (cmp > 0) {
+                BasicFileAttributes attributes = readAttributes(newNames[j]);
+                if (attributes != null) {
+                    newSizes[j] = attributes.size();
+                    newLastModified[j] = attributes.lastModifiedTime().toMillis();
+                }
+                paths.add(folder.resolve(newNames[j++]));
+            } else {
+                newSizes[j] = sizes[i];
+                newLastModified[j] = lastModified[i];
+                existing[j++] = true;
+                i++;
+            }
+        }
+
+        // Check a bounded round-robin slice of the existing files for modifications
+        int checks = Math.min(maxFilesPerScan, newNames.length);
+        for (int k = 0; k < checks; k++) {
+            int index = (cursor + k) % newNames.length;
+            if (!existing[index]) continue;
+
+            BasicFileAttributes attributes = readAttributes(newNames[index]);
+            if (attributes == null) continue;
+            long size = attributes.size();
+            long modified = attributes.lastModifiedTime().toMillis();
+            if (size != newSizes[index] || modified != newLastModified[index]) {
+                newSizes[index] = size;
+                newLastModified[index] = modified;
+                paths.add(folder.resolve(newNames[index]));
+            }
+        }
+        cursor = newNames.length == 0 ? 0 : (cursor + checks) % newNames.length;
+
+        this.names = newNames;
+        this.sizes = newSizes;
+        this.lastModified = newLastModified;
+        return paths;
+    }
+
+    private String[] list() throws IOException {
+        List<String> list = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*" + JAR_EXTENSION)) {
+            for (Path path : stream) {
+                list.add(path.getFileName().toString());
+            }
+        }
+
+        String[] array = list.toArray(new String[0]);
+        Arrays.sort(array);
+        return array;
+    }
+
+    private BasicFileAttributes readAttributes(String name) throws IOException {
+        try {
+            return Files.readAttributes(folder.resolve(name), BasicFileAttributes.class);
+        } catch (NoSuchFileException ex) {
+            return null; // Deleted in between listing and reading, picked up by the next scan
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+    }
+}
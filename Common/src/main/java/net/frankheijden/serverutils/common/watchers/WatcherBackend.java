@@ -0,0 +1,24 @@
+package net.frankheijden.serverutils.common.watchers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A source of file changes within a single folder.
+ */
+public interface WatcherBackend extends Closeable {
+
+    /**
+     * Blocks until any files in the folder have been created, modified or deleted.
+     * @return The changed files, or null if the backend was closed or the folder can no longer be watched.
+     */
+    List<Path> take() throws IOException, InterruptedException;
+
+    /**
+     * Closes the backend, waking up any thread blocked in {@link #take()}.
+     */
+    @Override
+    void close();
+}
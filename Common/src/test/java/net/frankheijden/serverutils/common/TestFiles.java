@@ -0,0 +1,35 @@
+package net.frankheijden.serverutils.common;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+public class TestFiles {
+
+    private TestFiles() {}
+
+    /**
+     * Writes the given bytes to a file in the given directory, replacing the file if it exists.
+     */
+    public static Path write(Path dir, String name, byte[] bytes) throws IOException {
+        return Files.write(dir.resolve(name), bytes);
+    }
+
+    /**
+     * Writes the given contents to a file in the given directory, replacing the file if it exists.
+     */
+    public static Path write(Path dir, String name, String contents) throws IOException {
+        return write(dir, name, contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the given contents to a file in the given directory, and sets its last modified time.
+     */
+    public static Path write(Path dir, String name, String contents, long lastModified) throws IOException {
+        Path path = write(dir, name, contents);
+        Files.setLastModifiedTime(path, FileTime.fromMillis(lastModified));
+        return path;
+    }
+}
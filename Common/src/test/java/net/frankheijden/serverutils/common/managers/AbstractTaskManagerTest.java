@@ -0,0 +1,115 @@
+package net.frankheijden.serverutils.common.managers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+
+class AbstractTaskManagerTest {
+
+    @Test
+    void budgetedTaskSpreadsStepsOverTicks() {
+        TickingTaskManager taskManager = new TickingTaskManager();
+        List<Integer> ran = new ArrayList<>();
+        List<BooleanSupplier> steps = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            int step = i;
+            steps.add(() -> {
+                ran.add(step);
+                sleep(5);
+                return true;
+            });
+        }
+
+        CompletableFuture<Void> future = taskManager.runBudgetedTask(steps, 1);
+        assertThat(taskManager.tick()).isTrue();
+        assertThat(ran).containsExactly(0);
+        assertThat(taskManager.tick()).isTrue();
+        assertThat(taskManager.tick()).isTrue();
+        assertThat(ran).containsExactly(0, 1, 2);
+        assertThat(future).isCompleted();
+        assertThat(taskManager.tick()).isFalse();
+    }
+
+    @Test
+    void budgetedTaskRunsAllStepsWithoutBudget() {
+        TickingTaskManager taskManager = new TickingTaskManager();
+        List<Integer> ran = new ArrayList<>();
+        CompletableFuture<Void> future = taskManager.runBudgetedTask(Arrays.asList(
+                () -> ran.add(0),
+                () -> ran.add(1)
+        ), 0);
+
+        assertThat(taskManager.tick()).isTrue();
+        assertThat(ran).containsExactly(0, 1);
+        assertThat(future).isCompleted();
+    }
+
+    @Test
+    void budgetedTaskStopsAtFailingStep() {
+        TickingTaskManager taskManager = new TickingTaskManager();
+        List<Integer> ran = new ArrayList<>();
+        CompletableFuture<Void> future = taskManager.runBudgetedTask(Arrays.asList(
+                () -> ran.add(0) && false,
+                () -> ran.add(1)
+        ), 0);
+
+        taskManager.tick();
+        assertThat(ran).containsExactly(0);
+        assertThat(future).isCompleted();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A task manager which only runs its tasks when ticked, one scheduled task per tick.
+     */
+    private static final class TickingTaskManager extends AbstractTaskManager<Runnable> {
+
+        private final Deque<Runnable> scheduled = new ArrayDeque<>();
+
+        private TickingTaskManager() {
+            super(task -> { });
+        }
+
+        private boolean tick() {
+            Runnable task = scheduled.poll();
+            if (task == null) return false;
+            task.run();
+            return true;
+        }
+
+        @Override
+        protected Runnable runTaskImpl(Runnable runnable) {
+            scheduled.add(runnable);
+            return runnable;
+        }
+
+        @Override
+        public Runnable runTaskLater(Runnable runnable, long delay) {
+            return runTaskImpl(runnable);
+        }
+
+        @Override
+        protected Runnable runTaskAsynchronouslyImpl(Runnable runnable) {
+            return runTaskImpl(runnable);
+        }
+
+        @Override
+        public void cancelTask(Runnable task) {
+            scheduled.remove(task);
+        }
+    }
+}
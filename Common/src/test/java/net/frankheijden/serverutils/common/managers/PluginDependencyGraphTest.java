@@ -0,0 +1,77 @@
+package net.frankheijden.serverutils.common.managers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+class PluginDependencyGraphTest {
+
+    @Test
+    void answersDirectAndTransitiveQueries() {
+        PluginDependencyGraph graph = new PluginDependencyGraph();
+        graph.add("A", Collections.emptySet());
+        graph.add("B", Collections.singleton("A"));
+        graph.add("C", Collections.singleton("B"));
+        graph.add("D", Arrays.asList("A", "C"));
+
+        assertThat(graph.getDependents("A")).containsExactlyInAnyOrder("B", "D");
+        assertThat(graph.getTransitiveDependents("A")).containsExactlyInAnyOrder("B", "C", "D");
+        assertThat(graph.getDependencies("D")).containsExactlyInAnyOrder("A", "C");
+        assertThat(graph.getTransitiveDependencies("D")).containsExactlyInAnyOrder("A", "B", "C");
+        assertThat(graph.getTransitiveDependencies("A")).isEmpty();
+        assertThat(graph.getDependents("Unknown")).isEmpty();
+    }
+
+    @Test
+    void keepsEdgesTowardsUnloadedPlugins() {
+        PluginDependencyGraph graph = new PluginDependencyGraph();
+        graph.add("B", Collections.singleton("A"));
+        assertThat(graph.getDependencies("B")).isEmpty();
+        assertThat(graph.size()).isEqualTo(1);
+
+        graph.add("A", Collections.emptySet());
+        assertThat(graph.getDependencies("B")).containsExactly("A");
+        assertThat(graph.getTransitiveDependents("A")).containsExactly("B");
+
+        graph.remove("A");
+        assertThat(graph.contains("A")).isFalse();
+        assertThat(graph.getDependencies("B")).isEmpty();
+
+        graph.add("A", Collections.emptySet());
+        assertThat(graph.getDependents("A")).containsExactly("B");
+
+        graph.remove("B");
+        assertThat(graph.getDependents("A")).isEmpty();
+        assertThat(graph.getTransitiveDependents("A")).isEmpty();
+    }
+
+    @Test
+    void reusesIndicesOfRemovedPlugins() {
+        PluginDependencyGraph graph = new PluginDependencyGraph();
+        graph.add("A", Collections.emptySet());
+        graph.add("B", Collections.singleton("A"));
+        graph.remove("B");
+        graph.remove("A");
+
+        graph.add("C", Collections.singleton("D"));
+        graph.add("D", Collections.emptySet());
+        assertThat(graph.size()).isEqualTo(2);
+        assertThat(graph.contains("A")).isFalse();
+        assertThat(graph.contains("B")).isFalse();
+        assertThat(graph.getDependents("D")).containsExactly("C");
+        assertThat(graph.getDependents("A")).isEmpty();
+    }
+
+    @Test
+    void handlesCycles() {
+        PluginDependencyGraph graph = new PluginDependencyGraph();
+        graph.add("A", Collections.singleton("B"));
+        graph.add("B", Collections.singleton("C"));
+        graph.add("C", Collections.singleton("A"));
+
+        assertThat(graph.getTransitiveDependents("A")).containsExactlyInAnyOrder("B", "C");
+        assertThat(graph.getTransitiveDependencies("B")).containsExactlyInAnyOrder("A", "C");
+    }
+}
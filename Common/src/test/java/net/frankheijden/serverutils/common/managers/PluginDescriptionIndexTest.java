@@ -0,0 +1,163 @@
+package net.frankheijden.serverutils.common.managers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import net.frankheijden.serverutils.common.entities.ServerUtilsPluginDescription;
+import net.frankheijden.serverutils.common.entities.exceptions.InvalidPluginDescriptionException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PluginDescriptionIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final Map<String, Integer> loads = new HashMap<>();
+
+    @Test
+    void lookupsOnlyOpenChangedJars() throws IOException {
+        File a = jar("A.jar", "A");
+        File b = jar("B.jar", "B");
+        PluginDescriptionIndex<TestDescription> index = newIndex();
+
+        assertThat(index.getPluginFile("B", () -> new File[]{ a, b })).contains(b);
+        assertThat(index.getPluginFile("A", () -> new File[]{ a, b })).contains(a);
+        assertThat(loads).containsEntry("A.jar", 1).containsEntry("B.jar", 1);
+
+        Files.write(b.toPath(), "C-longer".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(b.toPath(), FileTime.fromMillis(b.lastModified() + 5000));
+        assertThat(index.getPluginFile("B", () -> new File[]{ a, b })).isEmpty();
+        assertThat(index.getPluginFile("C-longer", () -> new File[]{ a, b })).contains(b);
+        assertThat(loads).containsEntry("A.jar", 1).containsEntry("B.jar", 2);
+    }
+
+    @Test
+    void indexedIdsAreResolvedWithoutListingJars() throws IOException {
+        File a = jar("A.jar", "A");
+        File b = jar("B.jar", "B");
+        PluginDescriptionIndex<TestDescription> index = newIndex();
+        AtomicInteger listings = new AtomicInteger();
+        Supplier<File[]> jars = () -> {
+            listings.incrementAndGet();
+            return new File[]{ a, b };
+        };
+
+        assertThat(index.getPluginFile("A", jars)).contains(a);
+        assertThat(index.getPluginFile("B", jars)).contains(b);
+        assertThat(index.getPluginFile("A", jars)).contains(a);
+        assertThat(listings).hasValue(1);
+
+        assertThat(index.getPluginFile("Missing", jars)).isEmpty();
+        assertThat(listings).hasValue(2);
+    }
+
+    @Test
+    void survivesRestarts() throws IOException {
+        File a = jar("A.jar", "A");
+        newIndex().refresh(new File[]{ a });
+
+        PluginDescriptionIndex<TestDescription> index = newIndex();
+        assertThat(index.getPluginFile("A", () -> new File[]{ a })).contains(a);
+        assertThat(loads).containsEntry("A.jar", 1);
+
+        assertThat(index.getPluginDescription(a)).map(TestDescription::getId).contains("A");
+        assertThat(loads).containsEntry("A.jar", 2);
+        assertThat(index.getPluginDescription(a)).map(TestDescription::getId).contains("A");
+        assertThat(loads).containsEntry("A.jar", 2);
+    }
+
+    @Test
+    void invalidJarsAreRememberedAndDeletedJarsForgotten() throws IOException {
+        File a = jar("A.jar", "A");
+        File invalid = jar("Invalid.jar", "");
+        PluginDescriptionIndex<TestDescription> index = newIndex();
+
+        assertThatThrownBy(() -> index.getPluginDescription(invalid))
+                .isInstanceOf(InvalidPluginDescriptionException.class);
+        assertThatThrownBy(() -> index.getPluginDescription(invalid))
+                .isInstanceOf(InvalidPluginDescriptionException.class);
+        assertThat(loads).containsEntry("Invalid.jar", 1);
+
+        assertThat(index.getPluginFile("A", () -> new File[]{ a, invalid })).contains(a);
+        Files.delete(a.toPath());
+        assertThat(index.getPluginFile("A", () -> new File[]{ invalid })).isEmpty();
+    }
+
+    private PluginDescriptionIndex<TestDescription> newIndex() {
+        return PluginDescriptionIndex.load(tempDir.resolve("index.json"), file -> {
+            loads.merge(file.getName(), 1, Integer::sum);
+            String id;
+            try {
+                id = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            } catch (IOException ex) {
+                throw new InvalidPluginDescriptionException(ex);
+            }
+            if (id.isEmpty()) throw new InvalidPluginDescriptionException("Empty");
+            return Optional.of(new TestDescription(id, file));
+        });
+    }
+
+    private File jar(String name, String id) throws IOException {
+        return Files.write(tempDir.resolve(name), id.getBytes(StandardCharsets.UTF_8)).toFile();
+    }
+
+    private static final class TestDescription implements ServerUtilsPluginDescription {
+
+        private final String id;
+        private final File file;
+
+        private TestDescription(String id, File file) {
+            this.id = id;
+            this.file = file;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return id;
+        }
+
+        @Override
+        public String getVersion() {
+            return "1.0";
+        }
+
+        @Override
+        public String getAuthor() {
+            return "";
+        }
+
+        @Override
+        public String getMain() {
+            return null;
+        }
+
+        @Override
+        public File getFile() {
+            return file;
+        }
+
+        @Override
+        public Set<String> getDependencies() {
+            return Collections.emptySet();
+        }
+    }
+}
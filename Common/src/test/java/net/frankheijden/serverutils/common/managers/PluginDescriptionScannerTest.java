@@ -0,0 +1,113 @@
+package net.frankheijden.serverutils.common.managers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import net.frankheijden.serverutils.common.entities.ServerUtilsPluginDescription;
+import net.frankheijden.serverutils.common.entities.exceptions.InvalidPluginDescriptionException;
+import org.junit.jupiter.api.Test;
+
+class PluginDescriptionScannerTest {
+
+    @Test
+    void scansAllFilesInOrder() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        PluginDescriptionScanner<TestDescription> scanner = new PluginDescriptionScanner<>(file -> {
+            threads.add(Thread.currentThread().getName());
+            if (file.getName().startsWith("invalid")) throw new InvalidPluginDescriptionException("Invalid");
+            if (file.getName().startsWith("broken")) throw new IllegalStateException("Broken");
+            if (file.getName().startsWith("missing")) return Optional.empty();
+            return Optional.of(new TestDescription(file));
+        });
+
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            files.add(new File((i % 4 == 0 ? "invalid" : "plugin") + i + ".jar"));
+        }
+        files.add(new File("broken.jar"));
+        files.add(new File("missing.jar"));
+
+        Map<File, PluginDescriptionScanner.ScanResult<TestDescription>> results = scanner.scan(files);
+        assertThat(results.keySet()).containsExactlyElementsOf(files);
+        assertThat(threads).allMatch(name -> name.startsWith("ServerUtils-Worker-"));
+
+        for (int i = 0; i < 64; i++) {
+            PluginDescriptionScanner.ScanResult<TestDescription> result = results.get(files.get(i));
+            if (i % 4 == 0) {
+                assertThat(result.isValid()).isFalse();
+                assertThatThrownBy(result::getDescription).isInstanceOf(InvalidPluginDescriptionException.class);
+            } else {
+                assertThat(result.getDescription()).map(TestDescription::getId).contains("plugin" + i + ".jar");
+            }
+        }
+
+        assertThatThrownBy(results.get(new File("broken.jar"))::getDescription)
+                .isInstanceOf(InvalidPluginDescriptionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(results.get(new File("missing.jar")).getDescription()).isEmpty();
+    }
+
+    @Test
+    void smallScansRunOnCallingThread() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        PluginDescriptionScanner<TestDescription> scanner = new PluginDescriptionScanner<>(file -> {
+            threads.add(Thread.currentThread().getName());
+            return Optional.of(new TestDescription(file));
+        });
+
+        scanner.scan(Collections.singletonList(new File("plugin.jar")));
+        assertThat(threads).containsExactly(Thread.currentThread().getName());
+    }
+
+    private static final class TestDescription implements ServerUtilsPluginDescription {
+
+        private final File file;
+
+        private TestDescription(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public String getId() {
+            return file.getName();
+        }
+
+        @Override
+        public String getName() {
+            return file.getName();
+        }
+
+        @Override
+        public String getVersion() {
+            return "1.0";
+        }
+
+        @Override
+        public String getAuthor() {
+            return "";
+        }
+
+        @Override
+        public String getMain() {
+            return null;
+        }
+
+        @Override
+        public File getFile() {
+            return file;
+        }
+
+        @Override
+        public Set<String> getDependencies() {
+            return Collections.emptySet();
+        }
+    }
+}
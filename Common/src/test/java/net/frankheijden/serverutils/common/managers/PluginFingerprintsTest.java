@@ -0,0 +1,54 @@
+package net.frankheijden.serverutils.common.managers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import net.frankheijden.serverutils.common.TestFiles;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PluginFingerprintsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void detectsChangedContents() throws IOException {
+        PluginFingerprints fingerprints = new PluginFingerprints();
+        File file = TestFiles.write(tempDir, "a.jar", "old", 1000).toFile();
+        fingerprints.prepare(file, PluginFingerprints.take(file));
+        fingerprints.commit("A", file);
+        assertThat(fingerprints.hasChanged("A", file)).isFalse();
+
+        TestFiles.write(tempDir, "a.jar", "new", 2000);
+        assertThat(fingerprints.hasChanged("A", file)).isTrue();
+        assertThat(fingerprints.hasChanged("A", file)).isTrue();
+    }
+
+    @Test
+    void ignoresTouchedJars() throws IOException {
+        PluginFingerprints fingerprints = new PluginFingerprints();
+        File file = TestFiles.write(tempDir, "a.jar", "contents", 1000).toFile();
+        fingerprints.adopt("A", file);
+
+        TestFiles.write(tempDir, "a.jar", "contents", 2000);
+        assertThat(fingerprints.hasChanged("A", file)).isFalse();
+    }
+
+    @Test
+    void onlyCommitsLoadedPlugins() throws IOException {
+        PluginFingerprints fingerprints = new PluginFingerprints();
+        File file = TestFiles.write(tempDir, "a.jar", "old", 1000).toFile();
+        fingerprints.prepare(file, PluginFingerprints.take(file));
+        fingerprints.discard(file);
+        fingerprints.commit("A", file);
+
+        // Without a fingerprint, the current jar is adopted as the baseline
+        TestFiles.write(tempDir, "a.jar", "new", 2000);
+        assertThat(fingerprints.hasChanged("A", file)).isFalse();
+        TestFiles.write(tempDir, "a.jar", "newer", 3000);
+        assertThat(fingerprints.hasChanged("A", file)).isTrue();
+    }
+}
@@ -0,0 +1,58 @@
+package net.frankheijden.serverutils.common.managers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import net.frankheijden.serverutils.common.TestFiles;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PluginJarCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void deduplicatesIdenticalJars() throws IOException {
+        PluginJarCache cache = new PluginJarCache(tempDir.resolve("cache"));
+        File a = cache.copy(TestFiles.write(tempDir, "a.jar", "contents").toFile());
+        File b = cache.copy(TestFiles.write(tempDir, "b.jar", "contents").toFile());
+        File c = cache.copy(TestFiles.write(tempDir, "c.jar", "other contents").toFile());
+
+        assertThat(a).isEqualTo(b).isNotEqualTo(c);
+        assertThat(cache.contains(a)).isTrue();
+        assertThat(cache.contains(tempDir.resolve("a.jar").toFile())).isFalse();
+        assertThat(tempDir.resolve("cache").toFile().list()).hasSize(2);
+    }
+
+    @Test
+    void copiesAreImmutable() throws IOException {
+        PluginJarCache cache = new PluginJarCache(tempDir.resolve("cache"));
+        File source = TestFiles.write(tempDir, "a.jar", "old").toFile();
+        File copy = cache.copy(source);
+
+        TestFiles.write(tempDir, "a.jar", "new");
+        assertThat(copy).hasContent("old");
+        assertThat(cache.copy(source)).isNotEqualTo(copy).hasContent("new");
+    }
+
+    @Test
+    void collectsUnusedCopiesAfterRelease() throws IOException {
+        PluginJarCache cache = new PluginJarCache(tempDir.resolve("cache"));
+        File used = cache.copy(TestFiles.write(tempDir, "a.jar", "used").toFile());
+        File unused = cache.copy(TestFiles.write(tempDir, "b.jar", "unused").toFile());
+
+        cache.collectGarbage(Collections.emptyList());
+        assertThat(used).exists();
+        assertThat(unused).exists();
+
+        cache.release(used);
+        cache.release(unused);
+        cache.collectGarbage(Collections.singletonList(used));
+        assertThat(used).exists();
+        assertThat(unused).doesNotExist();
+    }
+}
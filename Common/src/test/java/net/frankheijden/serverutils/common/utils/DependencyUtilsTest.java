@@ -7,10 +7,12 @@ import static org.junit.jupiter.params.provider.Arguments.of;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -34,6 +36,60 @@ class DependencyUtilsTest {
         assertThatIllegalStateException().isThrownBy(() -> DependencyUtils.determineOrder(dependencyMap));
     }
 
+    @Test
+    void determineOrderDeepChain() {
+        int depth = 100_000;
+        Map<Integer, Set<Integer>> dependencyMap = new LinkedHashMap<>();
+        for (int i = depth - 1; i >= 0; i--) {
+            dependencyMap.put(i, i == 0 ? asSet() : asSet(i - 1));
+        }
+
+        List<Integer> order = DependencyUtils.determineOrder(dependencyMap);
+        assertThat(order).hasSize(depth);
+        for (int i = 0; i < depth; i++) {
+            assertThat(order.get(i)).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void determineOrderIncludesUnknownDependencies() {
+        assertThat(DependencyUtils.determineOrder(mapOf(
+                new Pair<>("B", asSet("A"))
+        ))).containsExactly("A", "B");
+    }
+
+    @Test
+    void determineLayers() {
+        Map<String, Set<String>> dependencyMap = new LinkedHashMap<>();
+        dependencyMap.put("A", asSet());
+        dependencyMap.put("B", asSet("A"));
+        dependencyMap.put("C", asSet());
+        dependencyMap.put("D", asSet("B", "C"));
+        dependencyMap.put("E", asSet("A"));
+
+        assertThat(DependencyUtils.determineLayers(dependencyMap)).containsExactly(
+                asList("A", "C"),
+                asList("B", "E"),
+                asList("D")
+        );
+    }
+
+    @Test
+    void determineOrderReportsAllCycles() {
+        Map<String, Set<String>> dependencyMap = new LinkedHashMap<>();
+        dependencyMap.put("A", asSet("B"));
+        dependencyMap.put("B", asSet("A"));
+        dependencyMap.put("C", asSet("D"));
+        dependencyMap.put("D", asSet("E"));
+        dependencyMap.put("E", asSet("C"));
+        dependencyMap.put("F", asSet("F", "A"));
+        dependencyMap.put("G", asSet("A"));
+
+        assertThatIllegalStateException()
+                .isThrownBy(() -> DependencyUtils.determineOrder(dependencyMap))
+                .withMessage("Circular dependency detected: A -> B -> A, C -> D -> E -> C, F -> F");
+    }
+
     private static Stream<Arguments> dependencyGenerator() {
         return Stream.of(
                 of(
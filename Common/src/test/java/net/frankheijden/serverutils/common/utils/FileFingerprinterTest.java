@@ -0,0 +1,56 @@
+package net.frankheijden.serverutils.common.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import net.frankheijden.serverutils.common.TestFiles;
+import net.frankheijden.serverutils.common.utils.FileFingerprinter.Algorithm;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class FileFingerprinterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest(name = "contents = \"{0}\"")
+    @MethodSource("xxHash64Generator")
+    void computesXxHash64(String contents, String expected) throws IOException {
+        Path file = TestFiles.write(tempDir, "file.jar", contents);
+        assertThat(new FileFingerprinter().compute(file, Algorithm.XXHASH64)).isEqualTo(expected);
+    }
+
+    private static Stream<Arguments> xxHash64Generator() {
+        return Stream.of(
+                Arguments.of("", "ef46db3751d8e999"),
+                Arguments.of("abc", "44bc2cf5ad770999"),
+                Arguments.of("Nobody inspects the spammish repetition", "fbcea83c8a378bf1")
+        );
+    }
+
+    @Test
+    void memoizesUnchangedFiles() throws IOException {
+        Path file = TestFiles.write(tempDir, "a.jar", "old", 1000);
+        FileFingerprinter fingerprinter = new FileFingerprinter();
+
+        String oldHash = fingerprinter.getFingerprint(file, Algorithm.XXHASH64);
+        assertThat(fingerprinter.getFingerprint(file, Algorithm.XXHASH64)).isEqualTo(oldHash);
+        assertThat(fingerprinter.getHits()).isEqualTo(1);
+        assertThat(fingerprinter.getMisses()).isEqualTo(1);
+        assertThat(fingerprinter.getHitRate()).isEqualTo(0.5);
+        assertThat(fingerprinter.getBytesRead()).isEqualTo(3);
+
+        TestFiles.write(tempDir, "a.jar", "new", 2000);
+        assertThat(fingerprinter.getFingerprint(file, Algorithm.XXHASH64)).isNotEqualTo(oldHash);
+        assertThat(fingerprinter.getMisses()).isEqualTo(2);
+        assertThat(fingerprinter.getCacheSize()).isEqualTo(1);
+
+        fingerprinter.invalidate(file);
+        assertThat(fingerprinter.getCacheSize()).isZero();
+    }
+}
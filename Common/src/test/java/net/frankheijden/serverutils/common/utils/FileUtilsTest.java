@@ -0,0 +1,41 @@
+package net.frankheijden.serverutils.common.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import net.frankheijden.serverutils.common.TestFiles;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileUtilsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void hashesSmallFiles() throws IOException {
+        Path file = TestFiles.write(tempDir, "small.jar", "abc");
+        assertThat(FileUtils.getHash(file)).isEqualToIgnoringCase("900150983cd24fb0d6963f7d28e17f72");
+    }
+
+    @Test
+    void hashesFilesLargerThanTheBuffer() throws IOException, NoSuchAlgorithmException {
+        byte[] bytes = new byte[200 * 1024 + 7];
+        new Random(0).nextBytes(bytes);
+        Path file = TestFiles.write(tempDir, "large.jar", bytes);
+
+        String expected = StringUtils.bytesToHex(MessageDigest.getInstance("MD5").digest(bytes));
+        assertThat(FileUtils.getHash(file)).isEqualTo(expected);
+        assertThat(FileUtils.getFastHash(file)).hasSize(16);
+    }
+
+    @Test
+    void returnsNullForMissingFiles() {
+        assertThat(FileUtils.getHash(tempDir.resolve("missing.jar"))).isNull();
+        assertThat(FileUtils.getFastHash(tempDir.resolve("missing.jar"))).isNull();
+    }
+}
@@ -0,0 +1,137 @@
+package net.frankheijden.serverutils.common.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+import net.frankheijden.serverutils.common.TestFiles;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JarUtilsTest {
+
+    private static final String PLUGIN_YML = "name: Test\nmain: net.example.Test\nversion: 1.0\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsDeflatedAndStoredEntries() throws IOException {
+        byte[] bytes = jarBytes("A comment", "plugin.yml", ZipEntry.DEFLATED, "config.yml", ZipEntry.STORED);
+        File jar = TestFiles.write(tempDir, "plugin.jar", bytes).toFile();
+        assertThat(read(jar, "plugin.yml")).contains(PLUGIN_YML);
+        assertThat(read(jar, "config.yml")).contains("config.yml");
+        assertThat(read(jar, "bungee.yml")).isEmpty();
+    }
+
+    @Test
+    void prefersEarlierNames() throws IOException {
+        byte[] bytes = jarBytes(null, "plugin.yml", ZipEntry.DEFLATED, "bungee.yml", ZipEntry.DEFLATED);
+        File jar = TestFiles.write(tempDir, "plugin.jar", bytes).toFile();
+        assertThat(read(jar, "bungee.yml", "plugin.yml")).contains("bungee.yml");
+        assertThat(read(jar, "paper-plugin.yml", "plugin.yml")).contains(PLUGIN_YML);
+    }
+
+    @Test
+    void fallsBackForPrefixedArchives() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write("#!/bin/sh\nexec java -jar \"$0\"\n".getBytes(StandardCharsets.UTF_8));
+        out.write(jarBytes(null, "plugin.yml", ZipEntry.DEFLATED));
+        File jar = TestFiles.write(tempDir, "prefixed.jar", out.toByteArray()).toFile();
+
+        assertThat(read(jar, "plugin.yml")).contains(PLUGIN_YML);
+    }
+
+    @Test
+    void verifiesCompleteJars() throws IOException {
+        File jar = TestFiles.write(tempDir, "plugin.jar", jarBytes(null, "plugin.yml", ZipEntry.DEFLATED)).toFile();
+        assertThat(JarUtils.verify(jar, "net/example/Test.class", "plugin.yml")).isTrue();
+        assertThat(JarUtils.verify(jar, "net/example/Missing.class")).isFalse();
+    }
+
+    @Test
+    void rejectsTruncatedJars() throws IOException {
+        byte[] bytes = jarBytes(null, "plugin.yml", ZipEntry.DEFLATED);
+        File jar = TestFiles.write(tempDir, "partial.jar", Arrays.copyOf(bytes, bytes.length / 2)).toFile();
+        assertThatThrownBy(() -> JarUtils.verify(jar, "plugin.yml")).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void rejectsEntriesOverlappingTheCentralDirectory() throws IOException {
+        byte[] bytes = jarBytes(null, "plugin.yml", ZipEntry.DEFLATED);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        int centralOffset = buffer.getInt(bytes.length - 22 + 16);
+        buffer.putInt(centralOffset + 42, centralOffset);
+        File jar = TestFiles.write(tempDir, "overlapping.jar", bytes).toFile();
+
+        assertThatThrownBy(() -> JarUtils.verify(jar, "plugin.yml")).isInstanceOf(ZipException.class);
+    }
+
+    @Test
+    void preloadsValidClasses() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("net/example/Invalid.class"));
+            zip.write(new byte[1024]);
+            zip.closeEntry();
+
+            zip.putNextEntry(new ZipEntry("net/frankheijden/serverutils/common/utils/JarUtils.class"));
+            try (InputStream in = JarUtils.class.getResourceAsStream("JarUtils.class")) {
+                zip.write(in.readAllBytes());
+            }
+            zip.closeEntry();
+        }
+        File jar = TestFiles.write(tempDir, "plugin.jar", out.toByteArray()).toFile();
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { jar.toURI().toURL() }, null)) {
+            assertThat(JarUtils.preloadClasses(jar, classLoader)).isEqualTo(1);
+        }
+    }
+
+    private Optional<String> read(File jar, String... names) throws IOException {
+        return JarUtils.readEntry(jar, names).map(bytes -> new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private static byte[] jarBytes(String comment, Object... entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("net/example/Test.class"));
+            zip.write(new byte[1024]);
+            zip.closeEntry();
+
+            for (int i = 0; i < entries.length; i += 2) {
+                String name = (String) entries[i];
+                byte[] bytes = (name.equals("plugin.yml") ? PLUGIN_YML : name).getBytes(StandardCharsets.UTF_8);
+                ZipEntry entry = new ZipEntry(name);
+                entry.setMethod((int) entries[i + 1]);
+                if (entry.getMethod() == ZipEntry.STORED) {
+                    CRC32 crc = new CRC32();
+                    crc.update(bytes);
+                    entry.setSize(bytes.length);
+                    entry.setCrc(crc.getValue());
+                }
+                zip.putNextEntry(entry);
+                zip.write(bytes);
+                zip.closeEntry();
+            }
+
+            if (comment != null) zip.setComment(comment);
+        }
+        return out.toByteArray();
+    }
+}
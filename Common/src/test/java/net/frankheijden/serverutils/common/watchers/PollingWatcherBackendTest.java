@@ -0,0 +1,65 @@
+package net.frankheijden.serverutils.common.watchers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import net.frankheijden.serverutils.common.TestFiles;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PollingWatcherBackendTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void detectsCreatedModifiedAndDeletedJars() throws IOException {
+        Path a = TestFiles.write(tempDir, "a.jar", "a");
+        Path b = TestFiles.write(tempDir, "b.jar", "b");
+        TestFiles.write(tempDir, "config.yml", "c");
+        PollingWatcherBackend backend = new PollingWatcherBackend(tempDir, 1000, 256);
+        assertThat(backend.scan()).isEmpty();
+
+        Path c = TestFiles.write(tempDir, "c.jar", "c");
+        TestFiles.write(tempDir, "b.jar", "modified b");
+        Files.delete(a);
+        TestFiles.write(tempDir, "config.yml", "modified c");
+        assertThat(backend.scan()).containsExactlyInAnyOrder(a, b, c);
+        assertThat(backend.scan()).isEmpty();
+    }
+
+    @Test
+    void detectsModificationsWithEqualSize() throws IOException {
+        Path a = TestFiles.write(tempDir, "a.jar", "a");
+        PollingWatcherBackend backend = new PollingWatcherBackend(tempDir, 1000, 256);
+
+        TestFiles.write(tempDir, "a.jar", "b");
+        Files.setLastModifiedTime(a, FileTime.fromMillis(Files.getLastModifiedTime(a).toMillis() + 2000));
+        assertThat(backend.scan()).containsExactly(a);
+    }
+
+    @Test
+    void checksBoundedNumberOfFilesPerScan() throws IOException {
+        Path a = TestFiles.write(tempDir, "a.jar", "a");
+        Path b = TestFiles.write(tempDir, "b.jar", "b");
+        Path c = TestFiles.write(tempDir, "c.jar", "c");
+        PollingWatcherBackend backend = new PollingWatcherBackend(tempDir, 1000, 2);
+
+        TestFiles.write(tempDir, "a.jar", "modified a");
+        TestFiles.write(tempDir, "b.jar", "modified b");
+        TestFiles.write(tempDir, "c.jar", "modified c");
+        assertThat(backend.scan()).containsExactly(a, b);
+        assertThat(backend.scan()).containsExactly(c);
+        assertThat(backend.scan()).isEmpty();
+    }
+
+    @Test
+    void closeReleasesTake() throws Exception {
+        PollingWatcherBackend backend = new PollingWatcherBackend(tempDir, 60_000, 256);
+        backend.close();
+        assertThat(backend.take()).isNull();
+    }
+}
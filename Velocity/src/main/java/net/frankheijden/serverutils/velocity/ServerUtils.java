@@ -13,6 +13,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import net.frankheijden.serverutils.common.ServerUtilsApp;
 import net.frankheijden.serverutils.velocity.entities.VelocityPlugin;
+import net.frankheijden.serverutils.velocity.managers.PluginClassLoaderIndex;
 import net.frankheijden.serverutils.velocity.managers.VelocityPluginCommandManager;
 import net.frankheijden.serverutils.velocity.reflection.RVelocityCommandManager;
 import org.bstats.velocity.Metrics;
@@ -51,6 +52,7 @@ public class ServerUtils {
     private PluginContainer pluginContainer;
 
     private final VelocityPluginCommandManager pluginCommandManager;
+    private final PluginClassLoaderIndex pluginClassLoaderIndex;
 
     /**
      * Initialises ServerUtils.
@@ -64,10 +66,12 @@ public class ServerUtils {
             throw new RuntimeException(ex);
         }
 
+        this.pluginClassLoaderIndex = new PluginClassLoaderIndex(proxy);
         RVelocityCommandManager.proxyRegistrars(
                 proxy,
                 getClass().getClassLoader(),
-                (container, meta) -> pluginCommandManager.getPluginCommands().putAll(
+                pluginClassLoaderIndex,
+                (container, meta) -> pluginCommandManager.registerAliases(
                         container.getDescription().getId(),
                         meta.getAliases()
                 )
@@ -125,4 +129,8 @@ public class ServerUtils {
     public VelocityPluginCommandManager getPluginCommandManager() {
         return pluginCommandManager;
     }
+
+    public PluginClassLoaderIndex getPluginClassLoaderIndex() {
+        return pluginClassLoaderIndex;
+    }
 }
@@ -12,6 +12,7 @@ import net.frankheijden.serverutils.velocity.ServerUtils;
 import net.frankheijden.serverutils.velocity.commands.VelocityCommandPlugins;
 import net.frankheijden.serverutils.velocity.commands.VelocityCommandServerUtils;
 import net.frankheijden.serverutils.velocity.listeners.VelocityPlayerListener;
+import net.frankheijden.serverutils.velocity.listeners.VelocityPluginListener;
 import net.frankheijden.serverutils.velocity.managers.VelocityPluginManager;
 import net.frankheijden.serverutils.velocity.managers.VelocityTaskManager;
 
@@ -32,7 +33,8 @@ public class VelocityPlugin extends ServerUtilsPlugin<PluginContainer, Scheduled
         this.pluginManager = new VelocityPluginManager(
                 plugin.getProxy(),
                 plugin.getLogger(),
-                plugin.getPluginCommandManager()
+                plugin.getPluginCommandManager(),
+                plugin.getPluginClassLoaderIndex()
         );
         this.taskManager = new VelocityTaskManager(plugin);
         this.resourceProvider = new VelocityResourceProvider(plugin);
@@ -95,6 +97,7 @@ public class VelocityPlugin extends ServerUtilsPlugin<PluginContainer, Scheduled
     @Override
     protected void enablePlugin() {
         plugin.getProxy().getEventManager().register(plugin, new VelocityPlayerListener(this));
+        plugin.getProxy().getEventManager().register(plugin, new VelocityPluginListener(this));
     }
 
     @Override
@@ -15,6 +15,7 @@ public class VelocityPluginDescription implements ServerUtilsPluginDescription {
     private final PluginDescription description;
     private final File file;
     private final String author;
+    private final String main;
     private final Set<String> dependencies;
 
     /**
@@ -28,6 +29,7 @@ public class VelocityPluginDescription implements ServerUtilsPluginDescription {
 
         this.file = sourceOptional.get().toFile();
         this.author = String.join(", ", description.getAuthors());
+        this.main = getMainClassName(description);
         this.dependencies = description.getDependencies().stream()
                 .map(PluginDependency::getId)
                 .collect(Collectors.toSet());
@@ -53,6 +55,11 @@ public class VelocityPluginDescription implements ServerUtilsPluginDescription {
         return this.author;
     }
 
+    @Override
+    public String getMain() {
+        return this.main;
+    }
+
     @Override
     public File getFile() {
         return this.file;
@@ -66,4 +73,18 @@ public class VelocityPluginDescription implements ServerUtilsPluginDescription {
     public PluginDescription getDescription() {
         return description;
     }
+
+    /**
+     * Retrieves the main class name of the description, which is only exposed by the proxy's implementations
+     * (a class name for candidates, and the class itself for loaded plugins).
+     */
+    private static String getMainClassName(PluginDescription description) {
+        try {
+            Object mainClass = description.getClass().getMethod("getMainClass").invoke(description);
+            if (mainClass instanceof Class) return ((Class<?>) mainClass).getName();
+            return mainClass instanceof String ? (String) mainClass : null;
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,27 @@
+package net.frankheijden.serverutils.velocity.listeners;
+
+import com.velocitypowered.api.event.PostOrder;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.plugin.PluginContainer;
+import net.frankheijden.serverutils.common.listeners.PluginListener;
+import net.frankheijden.serverutils.velocity.entities.VelocityAudience;
+import net.frankheijden.serverutils.velocity.entities.VelocityPlugin;
+import net.frankheijden.serverutils.velocity.events.VelocityPluginLoadEvent;
+import net.frankheijden.serverutils.velocity.events.VelocityPluginUnloadEvent;
+
+public class VelocityPluginListener extends PluginListener<VelocityPlugin, PluginContainer, VelocityAudience> {
+
+    public VelocityPluginListener(VelocityPlugin plugin) {
+        super(plugin);
+    }
+
+    @Subscribe(order = PostOrder.LAST)
+    public void onPluginLoad(VelocityPluginLoadEvent event) {
+        handleLoad(event);
+    }
+
+    @Subscribe(order = PostOrder.LAST)
+    public void onPluginUnload(VelocityPluginUnloadEvent event) {
+        handleUnload(event);
+    }
+}
@@ -0,0 +1,76 @@
+package net.frankheijden.serverutils.velocity.managers;
+
+import com.velocitypowered.api.plugin.PluginContainer;
+import com.velocitypowered.api.proxy.ProxyServer;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maps the classloaders of plugin instances to their {@link PluginContainer}, such that the plugin of a class can
+ * be found without iterating all plugins. Kept current by ServerUtils' own (un)loads, and refreshed from the proxy on
+ * request to catch up with plugins loaded by the proxy itself.
+ */
+public class PluginClassLoaderIndex {
+
+    private static final long REFRESH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ProxyServer proxy;
+    private final Map<ClassLoader, PluginContainer> containers;
+    private final AtomicLong lastRefresh;
+
+    /**
+     * Constructs a new index, which is filled by the first refresh.
+     */
+    public PluginClassLoaderIndex(ProxyServer proxy) {
+        this.proxy = proxy;
+        this.containers = new ConcurrentHashMap<>();
+        this.lastRefresh = new AtomicLong(System.nanoTime() - REFRESH_INTERVAL_NANOS);
+    }
+
+    /**
+     * Retrieves the plugin whose instance was loaded by the given classloader.
+     */
+    public Optional<PluginContainer> get(ClassLoader classLoader) {
+        if (classLoader == null) return Optional.empty();
+        return Optional.ofNullable(containers.get(classLoader));
+    }
+
+    /**
+     * Adds the given plugin to the index, iff its instance has been created.
+     */
+    public void add(PluginContainer container) {
+        container.getInstance().ifPresent(instance -> containers.put(instance.getClass().getClassLoader(), container));
+    }
+
+    /**
+     * Removes the given plugin from the index.
+     */
+    public void remove(PluginContainer container) {
+        Optional<?> instanceOptional = container.getInstance();
+        if (instanceOptional.isPresent()) {
+            containers.remove(instanceOptional.get().getClass().getClassLoader(), container);
+        } else {
+            containers.values().removeIf(c -> c == container);
+        }
+    }
+
+    /**
+     * Adds the plugins currently known to the proxy to the index, at most once per second, such that lookups for
+     * classes which don't belong to any plugin (e.g. the proxy's own) don't rescan all plugins every time.
+     * Entries are added in place, so concurrent lookups never find the index empty.
+     * @return Whether the index was refreshed.
+     */
+    public boolean refresh() {
+        long now = System.nanoTime();
+        long last = lastRefresh.get();
+        if (now - last < REFRESH_INTERVAL_NANOS || !lastRefresh.compareAndSet(last, now)) return false;
+
+        for (PluginContainer container : proxy.getPluginManager().getPlugins()) {
+            add(container);
+        }
+        return true;
+    }
+}
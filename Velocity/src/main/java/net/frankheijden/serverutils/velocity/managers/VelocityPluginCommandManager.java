@@ -1,42 +1,85 @@
 package net.frankheijden.serverutils.velocity.managers;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Keeps track of which plugin registered which command aliases, indexed in both directions such that lookups are
+ * O(1) and don't need to lock. Changes are appended to a journal next to the cache file, such that registrations
+ * survive a crash of the proxy. The journal is compacted into the cache file when saving.
+ */
 public class VelocityPluginCommandManager {
 
     private static final Gson gson = new Gson();
+    private static final String JOURNAL_EXTENSION = ".journal";
+    private static final String TEMPORARY_EXTENSION = ".tmp";
 
-    private final Multimap<String, String> pluginCommands;
+    private final Map<String, String> aliasToPluginId;
+    private final Map<String, Set<String>> pluginIdToAliases;
     private final Path path;
+    private final Path journalPath;
 
+    /**
+     * Constructs a new, empty {@link VelocityPluginCommandManager} which is persisted at the given {@link Path}.
+     */
     public VelocityPluginCommandManager(Path path) {
-        this.pluginCommands = Multimaps.synchronizedSetMultimap(HashMultimap.create());
+        this.aliasToPluginId = new ConcurrentHashMap<>();
+        this.pluginIdToAliases = new ConcurrentHashMap<>();
         this.path = path;
+        this.journalPath = path.resolveSibling(path.getFileName() + JOURNAL_EXTENSION);
     }
 
     /**
-     * Loads and constructs a new {@link VelocityPluginCommandManager} from the given {@link Path}.
+     * Loads and constructs a new {@link VelocityPluginCommandManager} from the given {@link Path}, replaying the
+     * journal of changes made after it was last saved.
      */
     public static VelocityPluginCommandManager load(Path path) throws IOException {
         VelocityPluginCommandManager manager = new VelocityPluginCommandManager(path);
         if (Files.exists(path)) {
-            Map<String, Collection<String>> rawMap = gson.fromJson(
-                    Files.newBufferedReader(path),
-                    new TypeToken<Map<String, Collection<String>>>(){}.getType()
-            );
-            rawMap.forEach(manager.pluginCommands::putAll);
+            try (BufferedReader reader = Files.newBufferedReader(path)) {
+                Map<String, Collection<String>> rawMap = gson.fromJson(
+                        reader,
+                        new TypeToken<Map<String, Collection<String>>>(){}.getType()
+                );
+                if (rawMap != null) rawMap.forEach(manager::put);
+            }
+        }
+
+        if (Files.exists(manager.journalPath)) {
+            for (String line : Files.readAllLines(manager.journalPath, StandardCharsets.UTF_8)) {
+                JournalEntry entry;
+                try {
+                    entry = gson.fromJson(line, JournalEntry.class);
+                } catch (JsonParseException ex) {
+                    continue; // Last line may have been cut off by a crash
+                }
+                if (entry == null || entry.pluginId == null) continue;
+
+                if (entry.aliases == null) {
+                    manager.remove(entry.pluginId);
+                } else {
+                    manager.put(entry.pluginId, entry.aliases);
+                }
+            }
+            manager.save();
         }
 
         return manager;
@@ -46,31 +89,107 @@ public class VelocityPluginCommandManager {
      * Attempts to find the plugin id for a given command alias.
      */
     public Optional<String> findPluginId(String alias) {
-        for (Map.Entry<String, String> entry : pluginCommands.entries()) {
-            if (alias.equals(entry.getValue())) {
-                return Optional.of(entry.getKey());
+        return Optional.ofNullable(aliasToPluginId.get(alias));
+    }
+
+    /**
+     * Retrieves the command aliases registered by the given plugin.
+     */
+    public Set<String> getAliases(String pluginId) {
+        Set<String> aliases = pluginIdToAliases.get(pluginId);
+        return aliases == null ? Collections.emptySet() : Collections.unmodifiableSet(aliases);
+    }
+
+    /**
+     * Records that the given plugin registered the given command aliases.
+     */
+    public synchronized void registerAliases(String pluginId, Collection<String> aliases) {
+        put(pluginId, aliases);
+        append(new JournalEntry(pluginId, new ArrayList<>(aliases)));
+    }
+
+    /**
+     * Removes all command aliases registered by the given plugin.
+     * @return The removed aliases.
+     */
+    public synchronized Set<String> unregisterAliases(String pluginId) {
+        Set<String> aliases = remove(pluginId);
+        if (!aliases.isEmpty()) append(new JournalEntry(pluginId, null));
+        return aliases;
+    }
+
+    private void put(String pluginId, Collection<String> aliases) {
+        Set<String> pluginAliases = pluginIdToAliases.computeIfAbsent(pluginId, k -> ConcurrentHashMap.newKeySet());
+        for (String alias : aliases) {
+            String previousPluginId = aliasToPluginId.put(alias, pluginId);
+            if (previousPluginId != null && !previousPluginId.equals(pluginId)) {
+                Set<String> previousAliases = pluginIdToAliases.get(previousPluginId);
+                if (previousAliases != null) previousAliases.remove(alias);
             }
+            pluginAliases.add(alias);
+        }
+    }
+
+    private Set<String> remove(String pluginId) {
+        Set<String> aliases = pluginIdToAliases.remove(pluginId);
+        if (aliases == null) return Collections.emptySet();
+
+        for (String alias : aliases) {
+            aliasToPluginId.remove(alias, pluginId);
         }
-        return Optional.empty();
+        return new HashSet<>(aliases);
     }
 
-    public Multimap<String, String> getPluginCommands() {
-        return pluginCommands;
+    private void append(JournalEntry entry) {
+        try {
+            createParentDirectories(journalPath);
+            Files.write(
+                    journalPath,
+                    (gson.toJson(entry) + '\n').getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND
+            );
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
     }
 
     /**
-     * Saves the map to the {@link Path} it was loaded from.
+     * Saves the map to the {@link Path} it was loaded from, and compacts the journal into it.
      */
-    public void save() throws IOException {
-        if (Files.notExists(path.getParent())) {
-            Files.createDirectories(path.getParent());
-        }
+    public synchronized void save() throws IOException {
+        createParentDirectories(path);
 
+        Map<String, Collection<String>> rawMap = new HashMap<>(pluginIdToAliases.size());
+        pluginIdToAliases.forEach((pluginId, aliases) -> {
+            if (!aliases.isEmpty()) rawMap.put(pluginId, new ArrayList<>(aliases));
+        });
+
+        Path temporaryPath = path.resolveSibling(path.getFileName() + TEMPORARY_EXTENSION);
         Files.write(
-                path,
-                gson.toJson(pluginCommands.asMap()).getBytes(StandardCharsets.UTF_8),
+                temporaryPath,
+                gson.toJson(rawMap).getBytes(StandardCharsets.UTF_8),
                 StandardOpenOption.CREATE,
                 StandardOpenOption.TRUNCATE_EXISTING
         );
+        Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(journalPath);
+    }
+
+    private static void createParentDirectories(Path path) throws IOException {
+        if (path.getParent() != null && Files.notExists(path.getParent())) {
+            Files.createDirectories(path.getParent());
+        }
+    }
+
+    private static final class JournalEntry {
+
+        private final String pluginId;
+        private final List<String> aliases;
+
+        private JournalEntry(String pluginId, List<String> aliases) {
+            this.pluginId = pluginId;
+            this.aliases = aliases;
+        }
     }
 }
@@ -20,6 +20,7 @@ import com.velocitypowered.api.proxy.ProxyServer;
 import com.velocitypowered.api.scheduler.ScheduledTask;
 import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -28,10 +29,14 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import net.frankheijden.serverutils.common.entities.exceptions.InvalidPluginDescriptionException;
 import net.frankheijden.serverutils.common.entities.results.CloseablePluginResults;
+import net.frankheijden.serverutils.common.entities.results.PluginResult;
 import net.frankheijden.serverutils.common.entities.results.PluginResults;
 import net.frankheijden.serverutils.common.entities.results.Result;
 import net.frankheijden.serverutils.common.events.PluginEvent;
 import net.frankheijden.serverutils.common.managers.AbstractPluginManager;
+import net.frankheijden.serverutils.common.managers.HotSwapCapable;
+import net.frankheijden.serverutils.common.utils.JarUtils;
+import net.frankheijden.serverutils.common.utils.ParallelUtils;
 import net.frankheijden.serverutils.velocity.entities.VelocityPluginDescription;
 import net.frankheijden.serverutils.velocity.events.VelocityPluginDisableEvent;
 import net.frankheijden.serverutils.velocity.events.VelocityPluginEnableEvent;
@@ -46,21 +51,29 @@ import net.frankheijden.serverutils.velocity.reflection.RVelocityPluginManager;
 import net.frankheijden.serverutils.velocity.reflection.RVelocityScheduler;
 import org.slf4j.Logger;
 
-public class VelocityPluginManager extends AbstractPluginManager<PluginContainer, VelocityPluginDescription> {
+public class VelocityPluginManager extends AbstractPluginManager<PluginContainer, VelocityPluginDescription>
+        implements HotSwapCapable<PluginContainer, VelocityPluginDescription> {
 
     private static VelocityPluginManager instance;
     private final ProxyServer proxy;
     private final Logger logger;
     private final VelocityPluginCommandManager pluginCommandManager;
+    private final PluginClassLoaderIndex pluginClassLoaderIndex;
 
     /**
      * Constructs a new VelocityPluginManager.
      */
-    public VelocityPluginManager(ProxyServer proxy, Logger logger, VelocityPluginCommandManager pluginCommandManager) {
+    public VelocityPluginManager(
+            ProxyServer proxy,
+            Logger logger,
+            VelocityPluginCommandManager pluginCommandManager,
+            PluginClassLoaderIndex pluginClassLoaderIndex
+    ) {
         instance = this;
         this.proxy = proxy;
         this.logger = logger;
         this.pluginCommandManager = pluginCommandManager;
+        this.pluginClassLoaderIndex = pluginClassLoaderIndex;
     }
 
     public static VelocityPluginManager get() {
@@ -69,45 +82,145 @@ public class VelocityPluginManager extends AbstractPluginManager<PluginContainer
 
     @Override
     public PluginResults<PluginContainer> loadPluginDescriptions(List<VelocityPluginDescription> descriptions) {
-        PluginResults<PluginContainer> loadResults = new PluginResults<>();
+        return loadPluginDescriptions(descriptions, descriptions);
+    }
 
-        for (VelocityPluginDescription description : descriptions) {
-            Path source = description.getFile().toPath();
-            Path baseDirectory = source.getParent();
+    @Override
+    protected PluginResults<PluginContainer> loadPluginDescriptions(
+            List<VelocityPluginDescription> descriptions,
+            List<VelocityPluginDescription> batchDescriptions
+    ) {
+        PluginResults<PluginContainer> stageResults = stagePluginDescriptions(descriptions, batchDescriptions, false);
+        if (!stageResults.isSuccess()) {
+            // None of the plugins have been announced yet, so none of them are loaded
+            discardStagedPlugins(getSuccessfulPlugins(stageResults));
+            return new PluginResults<PluginContainer>().addResult(stageResults.last());
+        }
+        return commitStagedPlugins(stageResults.getPlugins());
+    }
 
-            Object javaPluginLoader = RJavaPluginLoader.newInstance(proxy, baseDirectory);
-            PluginDescription candidate = RJavaPluginLoader.loadPluginDescription(javaPluginLoader, source);
+    @Override
+    public PluginResults<PluginContainer> stagePluginDescriptions(List<VelocityPluginDescription> descriptions) {
+        return stagePluginDescriptions(descriptions, descriptions, true);
+    }
 
-            dependencyCheck:
-            for (PluginDependency dependency : candidate.getDependencies()) {
-                String pluginId = dependency.getId();
-                for (VelocityPluginDescription desc : descriptions) {
-                    if (desc.getId().equals(pluginId)) continue dependencyCheck;
-                }
+    /**
+     * Creates the containers of the given descriptions, without announcing them. Nothing is registered with the
+     * proxy until the plugins are enabled, so this can happen while older versions of the plugins are still enabled.
+     * For the same reason, dependencies on plugins of the batch are satisfied even if those haven't been enabled.
+     */
+    private PluginResults<PluginContainer> stagePluginDescriptions(
+            List<VelocityPluginDescription> descriptions,
+            List<VelocityPluginDescription> batchDescriptions,
+            boolean preloadClasses
+    ) {
+        PluginResults<PluginContainer> stageResults = new PluginResults<>();
+
+        // Plugins within a wave don't depend on each other, so their candidates and classloaders are created in
+        // parallel, while constructing the containers remains serial and in load order.
+        for (List<VelocityPluginDescription> wave : determineLoadWaves(descriptions)) {
+            List<LoadCandidate> candidates = ParallelUtils.map(wave, description -> {
+                Path source = description.getFile().toPath();
+                Object javaPluginLoader = RJavaPluginLoader.newInstance(proxy, getPluginsFolder().toPath());
+                PluginDescription candidate = RJavaPluginLoader.loadPluginDescription(javaPluginLoader, source);
+                return new LoadCandidate(description, javaPluginLoader, candidate);
+            });
+
+            for (LoadCandidate loadCandidate : candidates) {
+                PluginDescription candidate = loadCandidate.candidate;
+
+                dependencyCheck:
+                for (PluginDependency dependency : candidate.getDependencies()) {
+                    String pluginId = dependency.getId();
+                    for (VelocityPluginDescription desc : batchDescriptions) {
+                        if (desc.getId().equals(pluginId)) continue dependencyCheck;
+                    }
 
-                if (!dependency.isOptional() && !proxy.getPluginManager().isLoaded(dependency.getId())) {
-                    logger.error(
-                            "Can't load plugin {} due to missing dependency {}",
-                            candidate.getId(),
-                            dependency.getId()
-                    );
-                    return loadResults.addResult(description.getId(), Result.UNKNOWN_DEPENDENCY,
-                            "dependency", dependency.getId()
-                    );
+                    if (!dependency.isOptional() && !proxy.getPluginManager().isLoaded(dependency.getId())) {
+                        logger.error(
+                                "Can't load plugin {} due to missing dependency {}",
+                                candidate.getId(),
+                                dependency.getId()
+                        );
+                        return stageResults.addResult(loadCandidate.description.getId(), Result.UNKNOWN_DEPENDENCY,
+                                "dependency", dependency.getId()
+                        );
+                    }
                 }
             }
 
-            PluginDescription realPlugin = RJavaPluginLoader.loadPlugin(javaPluginLoader, candidate);
-            PluginContainer container = RVelocityPluginContainer.newInstance(realPlugin);
+            List<PluginDescription> realPlugins = ParallelUtils.map(candidates, c -> {
+                PluginDescription realPlugin = RJavaPluginLoader.loadPlugin(c.javaPluginLoader, c.candidate);
+                if (preloadClasses) preloadClasses(c.description, realPlugin);
+                return realPlugin;
+            });
+
+            for (int i = 0; i < candidates.size(); i++) {
+                PluginContainer container = RVelocityPluginContainer.newInstance(realPlugins.get(i));
+                stageResults.addResult(candidates.get(i).description.getId(), container);
+            }
+        }
+
+        return stageResults;
+    }
+
+    private void preloadClasses(VelocityPluginDescription description, PluginDescription realPlugin) {
+        ClassLoader classLoader = getClassLoader(realPlugin);
+        if (classLoader == null) return;
+
+        try {
+            JarUtils.preloadClasses(description.getFile(), classLoader);
+        } catch (IOException ex) {
+            logger.warn(String.format("Can't preload the classes of plugin %s", description.getId()), ex);
+        }
+    }
+
+    @Override
+    public PluginResults<PluginContainer> commitStagedPlugins(List<PluginContainer> containers) {
+        PluginResults<PluginContainer> loadResults = new PluginResults<>();
+        for (PluginContainer container : containers) {
             proxy.getEventManager().fire(new VelocityPluginLoadEvent(container, PluginEvent.Stage.PRE));
             proxy.getEventManager().fire(new VelocityPluginLoadEvent(container, PluginEvent.Stage.POST));
 
-            loadResults.addResult(description.getId(), container);
+            loadResults.addResult(getPluginId(container), container);
         }
-
         return loadResults;
     }
 
+    @Override
+    public void discardStagedPlugins(List<PluginContainer> containers) {
+        for (PluginContainer container : containers) {
+            ClassLoader classLoader = getClassLoader(container.getDescription());
+            if (!(classLoader instanceof Closeable)) continue;
+
+            try {
+                ((Closeable) classLoader).close();
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private static List<PluginContainer> getSuccessfulPlugins(PluginResults<PluginContainer> results) {
+        List<PluginContainer> containers = new ArrayList<>();
+        for (PluginResult<PluginContainer> result : results) {
+            if (result.isSuccess()) containers.add(result.getPlugin());
+        }
+        return containers;
+    }
+
+    /**
+     * Retrieves the classloader of a loaded plugin description, which is the classloader of its main class.
+     */
+    private static ClassLoader getClassLoader(PluginDescription description) {
+        try {
+            Object mainClass = description.getClass().getMethod("getMainClass").invoke(description);
+            return mainClass instanceof Class ? ((Class<?>) mainClass).getClassLoader() : null;
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+
     @Override
     public PluginResults<PluginContainer> enableOrderedPlugins(List<PluginContainer> containers) {
         PluginResults<PluginContainer> enableResults = new PluginResults<>();
@@ -120,10 +233,9 @@ public class VelocityPluginManager extends AbstractPluginManager<PluginContainer
                 return enableResults.addResult(pluginId, Result.ALREADY_ENABLED);
             }
 
-            Object javaPluginLoader = RJavaPluginLoader.newInstance(
-                    proxy,
-                    container.getDescription().getSource().map(Path::getParent).orElse(null)
-            );
+            // The data directories are resolved from the loader's base directory, which must be the plugins folder
+            // for plugins loaded from the jar cache as well
+            Object javaPluginLoader = RJavaPluginLoader.newInstance(proxy, getPluginsFolder().toPath());
             PluginDescription realPlugin = container.getDescription();
             Module module = RJavaPluginLoader.createModule(javaPluginLoader, container);
 
@@ -165,6 +277,7 @@ public class VelocityPluginManager extends AbstractPluginManager<PluginContainer
             );
 
             RVelocityPluginManager.registerPlugin(proxy.getPluginManager(), container);
+            pluginClassLoaderIndex.add(container);
             Optional<?> instanceOptional = container.getInstance();
             if (instanceOptional.isPresent()) {
                 Object pluginInstance = instanceOptional.get();
@@ -265,10 +378,11 @@ public class VelocityPluginManager extends AbstractPluginManager<PluginContainer
                 task.cancel();
             }
 
-            for (String alias : pluginCommandManager.getPluginCommands().removeAll(pluginId)) {
+            for (String alias : pluginCommandManager.unregisterAliases(pluginId)) {
                 proxy.getCommandManager().unregister(alias);
             }
 
+            pluginClassLoaderIndex.remove(container);
             RVelocityPluginManager.getPlugins(proxy.getPluginManager()).remove(pluginId);
             RVelocityPluginManager.getPluginInstances(proxy.getPluginManager()).remove(pluginInstance);
 
@@ -303,20 +417,6 @@ public class VelocityPluginManager extends AbstractPluginManager<PluginContainer
                 .orElse(null);
     }
 
-    @Override
-    public Optional<File> getPluginFile(String pluginName) {
-        Object javaPluginLoader = RJavaPluginLoader.newInstance(instance.proxy, getPluginsFolder().toPath());
-
-        for (File file : getPluginJars()) {
-            PluginDescription desc = RJavaPluginLoader.loadPluginDescription(javaPluginLoader, file.toPath());
-
-            if (desc.getId().equals(pluginName)) {
-                return Optional.of(file);
-            }
-        }
-        return Optional.empty();
-    }
-
     @Override
     public Optional<PluginContainer> getPlugin(String pluginName) {
         return proxy.getPluginManager().getPlugin(pluginName);
@@ -354,4 +454,21 @@ public class VelocityPluginManager extends AbstractPluginManager<PluginContainer
                 .map(CommandNode::getName)
                 .collect(Collectors.toSet());
     }
+
+    private static final class LoadCandidate {
+
+        private final VelocityPluginDescription description;
+        private final Object javaPluginLoader;
+        private final PluginDescription candidate;
+
+        private LoadCandidate(
+                VelocityPluginDescription description,
+                Object javaPluginLoader,
+                PluginDescription candidate
+        ) {
+            this.description = description;
+            this.javaPluginLoader = javaPluginLoader;
+            this.candidate = candidate;
+        }
+    }
 }
@@ -14,9 +14,11 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.function.BiConsumer;
 import net.frankheijden.serverutils.common.utils.ReflectionUtils;
 import net.frankheijden.serverutils.velocity.ServerUtils;
+import net.frankheijden.serverutils.velocity.managers.PluginClassLoaderIndex;
 
 public class RVelocityCommandManager {
 
@@ -36,6 +38,7 @@ public class RVelocityCommandManager {
     public static void proxyRegistrars(
             ProxyServer proxy,
             ClassLoader loader,
+            PluginClassLoaderIndex pluginClassLoaderIndex,
             BiConsumer<PluginContainer, CommandMeta> registrationConsumer
     ) {
         List<Object> proxiedRegistrars = new ArrayList<>();
@@ -53,7 +56,7 @@ public class RVelocityCommandManager {
                     loader,
                     new Class[]{ commandRegistrarClass },
                     new CommandRegistrarInvocationHandler(
-                            proxy,
+                            pluginClassLoaderIndex,
                             registrar,
                             registrationConsumer
                     )
@@ -69,7 +72,11 @@ public class RVelocityCommandManager {
 
     public static final class CommandRegistrarInvocationHandler implements InvocationHandler {
 
-        private final ProxyServer proxy;
+        private static final StackWalker stackWalker = StackWalker.getInstance(
+                StackWalker.Option.RETAIN_CLASS_REFERENCE
+        );
+
+        private final PluginClassLoaderIndex pluginClassLoaderIndex;
         private final Object commandRegistrar;
         private final BiConsumer<PluginContainer, CommandMeta> registrationConsumer;
 
@@ -77,11 +84,11 @@ public class RVelocityCommandManager {
          * Constructs  a new {@link CommandRegistrarInvocationHandler}.
          */
         public CommandRegistrarInvocationHandler(
-                ProxyServer proxy,
+                PluginClassLoaderIndex pluginClassLoaderIndex,
                 Object commandRegistrar,
                 BiConsumer<PluginContainer, CommandMeta> registrationConsumer
         ) {
-            this.proxy = proxy;
+            this.pluginClassLoaderIndex = pluginClassLoaderIndex;
             this.commandRegistrar = commandRegistrar;
             this.registrationConsumer = registrationConsumer;
         }
@@ -96,24 +103,15 @@ public class RVelocityCommandManager {
         }
 
         private void handleRegisterMethod(CommandMeta commandMeta) {
-            StackTraceElement[] elements = Thread.currentThread().getStackTrace();
-
-            // Skip the first four elements, which is our overhead here
-            for (int i = 4; i < elements.length; i++) {
-                Class<?> clazz;
-                try {
-                    clazz = Class.forName(elements[i].getClassName());
-                } catch (ClassNotFoundException ex) {
-                    continue;
-                }
-
-                ClassLoader classLoader = clazz.getClassLoader();
-                for (PluginContainer container : proxy.getPluginManager().getPlugins()) {
-                    if (container.getInstance().filter(o -> o.getClass().getClassLoader() == classLoader).isPresent()) {
-                        registrationConsumer.accept(container, commandMeta);
-                        return;
-                    }
-                }
+            Optional<PluginContainer> containerOptional = findCaller();
+            if (!containerOptional.isPresent() && pluginClassLoaderIndex.refresh()) {
+                // The caller may have been loaded by the proxy itself, which the index only tracks once refreshed
+                containerOptional = findCaller();
+            }
+
+            if (containerOptional.isPresent()) {
+                registrationConsumer.accept(containerOptional.get(), commandMeta);
+                return;
             }
 
             ServerUtils.getInstance().getLogger().warn(
@@ -121,5 +119,17 @@ public class RVelocityCommandManager {
                     commandMeta.getAliases()
             );
         }
+
+        /**
+         * Finds the plugin of the first class on the stack, skipping our own overhead of proxying the registrar.
+         */
+        private Optional<PluginContainer> findCaller() {
+            return stackWalker.walk(frames -> frames
+                    .map(StackWalker.StackFrame::getDeclaringClass)
+                    .dropWhile(clazz -> clazz == CommandRegistrarInvocationHandler.class || Proxy.isProxyClass(clazz))
+                    .map(clazz -> pluginClassLoaderIndex.get(clazz.getClassLoader()))
+                    .flatMap(Optional::stream)
+                    .findFirst());
+        }
     }
 }